@@ -0,0 +1,81 @@
+package benchmarks;
+
+import models.GameState;
+
+/**
+ * Fixed position corpus for the benchmarks, in GameState notation with a
+ * roll that gives the side to move several choices. Positions were taken
+ * from seeded random games; never change them, or results stop being
+ * comparable between runs.
+ */
+final class Positions {
+
+    static final String[] OPENING = {
+        "WWBBWBBWBW.B.WWB.............. w 2",
+        "WWBBWBWBBBWBWW................ w 5",
+        "WWBBBWWWB.BWBBW............... w 2",
+    };
+
+    static final String[] MIDGAME = {
+        ".WWBBW..B.BW..W...B.B.B.W....W w 1",
+        "B..BBW.WWB.BW.WB..WB..W....... w 1",
+        "W.B..WWBBB..B.WBWW.B....W..... w 4",
+    };
+
+    static final String[] ENDGAME = {
+        ".................W.WB..WBB.... w 1",
+        ".................WB..W.BW..... w 1",
+        ".................B..B.WWW..... b 1",
+    };
+
+    private Positions() {
+    }
+
+    /**
+     * Positions of a game phase: "opening", "midgame", "endgame" or "all"
+     */
+    static String[] phase(String name) {
+        switch (name) {
+            case "opening": return OPENING;
+            case "midgame": return MIDGAME;
+            case "endgame": return ENDGAME;
+            case "all": return concat(OPENING, MIDGAME, ENDGAME);
+        }
+        throw new IllegalArgumentException("Unknown phase: " + name);
+    }
+
+    /**
+     * A single position by phase and 1-based index, e.g. "midgame-2"
+     */
+    static String named(String name) {
+        int dash = name.lastIndexOf('-');
+        if (dash > 0) {
+            String[] entries = phase(name.substring(0, dash));
+            int index = Integer.parseInt(name.substring(dash + 1)) - 1;
+            if (index >= 0 && index < entries.length) {
+                return entries[index];
+            }
+        }
+        throw new IllegalArgumentException("Unknown position: " + name);
+    }
+
+    static GameState state(String entry) {
+        return GameState.fromNotation(entry.substring(0, entry.lastIndexOf(' ')));
+    }
+
+    static int roll(String entry) {
+        return Integer.parseInt(entry.substring(entry.lastIndexOf(' ') + 1));
+    }
+
+    private static String[] concat(String[]... phases) {
+        int length = 0;
+        for (String[] phase : phases) length += phase.length;
+        String[] all = new String[length];
+        int i = 0;
+        for (String[] phase : phases) {
+            System.arraycopy(phase, 0, all, i, phase.length);
+            i += phase.length;
+        }
+        return all;
+    }
+}
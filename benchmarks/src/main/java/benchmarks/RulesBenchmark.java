@@ -0,0 +1,89 @@
+package benchmarks;
+
+import game.GameRules;
+import models.BitBoard;
+import models.GameState;
+import models.Move;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation and application over every position of a phase
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    private GameState[] states;
+    private int[] rolls;
+    private Move[] moves; // one legal move per position, for applyMove
+    private final int[] buffer = new int[BitBoard.PIECES_PER_PLAYER];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] entries = Positions.phase(phase);
+        states = new GameState[entries.length];
+        rolls = new int[entries.length];
+        moves = new Move[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            states[i] = Positions.state(entries[i]);
+            rolls[i] = Positions.roll(entries[i]);
+            moves[i] = GameRules.getLegalMoves(states[i], rolls[i]).get(0);
+        }
+    }
+
+    @Benchmark
+    public void getLegalMoves(Blackhole bh) {
+        for (int i = 0; i < states.length; i++) {
+            for (int roll = 1; roll <= 5; roll++) {
+                List<Move> legal = GameRules.getLegalMoves(states[i], roll);
+                bh.consume(legal);
+            }
+        }
+    }
+
+    @Benchmark
+    public void generateMoves(Blackhole bh) {
+        for (int i = 0; i < states.length; i++) {
+            for (int roll = 1; roll <= 5; roll++) {
+                bh.consume(GameRules.generateMoves(states[i], roll, buffer));
+            }
+        }
+    }
+
+    @Benchmark
+    public void applyMove(Blackhole bh) {
+        for (int i = 0; i < states.length; i++) {
+            bh.consume(GameRules.applyMove(states[i], moves[i]));
+        }
+    }
+
+    @Benchmark
+    public void makeUnmakeMove(Blackhole bh) {
+        for (int i = 0; i < states.length; i++) {
+            GameRules.makeMove(states[i], moves[i]);
+            bh.consume(states[i].getHash());
+            GameRules.unmakeMove(states[i]);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import computer.Expectiminimax;
+import computer.TranspositionTable;
+import models.GameState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One fixed-depth Expectiminimax.getBestMove per operation. Every operation
+ * clears the transposition table and then searches, so each search starts
+ * cold and the clear is part of the measured time. The table holds
+ * 2^(8 + 2 * depth) entries, capped at the engine's default size: that is a
+ * few times the nodes a search of that depth visits, which keeps the clear
+ * a small fraction of the search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"2", "3", "4", "5", "6", "7", "8"})
+    public int depth;
+
+    @Param({"opening-1", "opening-2", "opening-3",
+            "midgame-1", "midgame-2", "midgame-3",
+            "endgame-1", "endgame-2", "endgame-3"})
+    public String position;
+
+    private GameState state;
+    private int roll;
+    private TranspositionTable table;
+    private Expectiminimax engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String entry = Positions.named(position);
+        state = Positions.state(entry);
+        roll = Positions.roll(entry);
+        table = new TranspositionTable(Math.min(8 + 2 * depth, TranspositionTable.DEFAULT_SIZE_BITS));
+        engine = new Expectiminimax(state.getCurrentPlayer(), false, table);
+    }
+
+    @Benchmark
+    public int getBestMove() {
+        table.clear();
+        return engine.getBestMove(state, roll, depth).getFromPosition();
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import computer.Heuristic;
+import models.GameState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation and copying of every position of a phase
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmark {
+
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    private GameState[] states;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] entries = Positions.phase(phase);
+        states = new GameState[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            states[i] = Positions.state(entries[i]);
+        }
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole bh) {
+        for (GameState state : states) {
+            bh.consume(Heuristic.evaluate(state, state.getCurrentPlayer()));
+        }
+    }
+
+    @Benchmark
+    public void cloneState(Blackhole bh) {
+        for (GameState state : states) {
+            bh.consume(state.clone());
+        }
+    }
+}
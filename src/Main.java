@@ -1,12 +1,33 @@
+import computer.EndgameTable;
+import computer.EngineType;
+import computer.OpeningBook;
+import computer.RaceTable;
+import computer.SearchBudget;
+import game.EngineProtocol;
 import game.GameController;
+import game.GameRules;
+import game.RuleTable;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class Main {
 
     public static void main(String[] args) {
         // Default values
         int depth = 6;
+        boolean depthGiven = false;
+        long timeLimit = 0;
+        long nodeLimit = 0;
+        int threads = 1;
+        String engineName = EngineType.EXPECTIMINIMAX.getName();
+        String rulesFile = null;
+        String endgameFile = null;
+        String raceFile = null;
+        String bookFile = null;
         boolean verbose = false;
         boolean aiFirst = false;
+        boolean ponder = true;
+        boolean protocol = false;
 
         // Parse command line argumentsi
         for (int i = 0; i < args.length; i++) {
@@ -15,6 +36,62 @@ public class Main {
                 case "-d":
                     if (i + 1 < args.length) {
                         depth = Integer.parseInt(args[++i]);
+                        depthGiven = true;
+                    }
+                    break;
+
+                case "--time":
+                case "-t":
+                    if (i + 1 < args.length) {
+                        timeLimit = Long.parseLong(args[++i]);
+                    }
+                    break;
+
+                case "--nodes":
+                case "-n":
+                    if (i + 1 < args.length) {
+                        nodeLimit = Long.parseLong(args[++i]);
+                    }
+                    break;
+
+                case "--threads":
+                case "-j":
+                    if (i + 1 < args.length) {
+                        threads = Integer.parseInt(args[++i]);
+                    }
+                    break;
+
+                case "--engine":
+                case "-e":
+                    if (i + 1 < args.length) {
+                        engineName = args[++i];
+                    }
+                    break;
+
+                case "--rules":
+                case "-r":
+                    if (i + 1 < args.length) {
+                        rulesFile = args[++i];
+                    }
+                    break;
+
+                case "--endgame":
+                case "-g":
+                    if (i + 1 < args.length) {
+                        endgameFile = args[++i];
+                    }
+                    break;
+
+                case "--race":
+                    if (i + 1 < args.length) {
+                        raceFile = args[++i];
+                    }
+                    break;
+
+                case "--book":
+                case "-b":
+                    if (i + 1 < args.length) {
+                        bookFile = args[++i];
                     }
                     break;
 
@@ -28,6 +105,14 @@ public class Main {
                     aiFirst = true;
                     break;
 
+                case "--no-ponder":
+                    ponder = false;
+                    break;
+
+                case "--protocol":
+                    protocol = true;
+                    break;
+
                 case "--help":
                 case "-h":
                     printHelp();
@@ -35,14 +120,93 @@ public class Main {
             }
         }
 
-        // Validate depth
-        if (depth < 1 || depth > 10) {
-            System.out.println("Error: Depth must be between 1 and 10");
+        // With a time or node limit the depth is only a cap
+        boolean limited = timeLimit > 0 || nodeLimit > 0;
+        if (limited && !depthGiven) {
+            depth = SearchBudget.MAX_DEPTH;
+        }
+
+        // Validate depth (deep fixed-depth searches can take very long without a limit)
+        int maxDepth = limited ? SearchBudget.MAX_DEPTH : 10;
+        if (depth < 1 || depth > maxDepth) {
+            System.out.println("Error: Depth must be between 1 and " + maxDepth
+                + (limited ? "" : " (use --time or --nodes for deeper searches)"));
+            return;
+        }
+        if (timeLimit < 0 || nodeLimit < 0) {
+            System.out.println("Error: Time and node limits must be positive");
+            return;
+        }
+        if (threads < 1) {
+            System.out.println("Error: Thread count must be at least 1");
+            return;
+        }
+
+        EngineType engine = EngineType.fromName(engineName);
+        if (engine == null) {
+            System.out.println("Error: Unknown engine '" + engineName + "' (expectiminimax, lazysmp or mcts)");
+            return;
+        }
+
+        if (rulesFile != null) {
+            try {
+                GameRules.setRuleTable(RuleTable.load(Paths.get(rulesFile)));
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("Error: Cannot load rules from " + rulesFile + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        // After the rules: the table must have been solved for the rules in play
+        EndgameTable endgame = null;
+        if (endgameFile != null) {
+            try {
+                endgame = EndgameTable.open(Paths.get(endgameFile));
+            } catch (IOException e) {
+                System.out.println("Error: Cannot load endgame table: " + e.getMessage());
+                return;
+            }
+        }
+        RaceTable race = null;
+        if (raceFile != null) {
+            try {
+                race = RaceTable.open(Paths.get(raceFile));
+            } catch (IOException e) {
+                System.out.println("Error: Cannot load race table: " + e.getMessage());
+                return;
+            }
+        }
+        OpeningBook book = null;
+        if (bookFile != null) {
+            try {
+                book = OpeningBook.open(Paths.get(bookFile));
+            } catch (IOException e) {
+                System.out.println("Error: Cannot load opening book: " + e.getMessage());
+                return;
+            }
+        }
+
+        SearchBudget budget = new SearchBudget(depth, timeLimit, nodeLimit);
+        if (protocol) {
+            EngineProtocol engineProtocol = new EngineProtocol(engine, threads, budget, System.in, System.out);
+            engineProtocol.setEndgameTable(endgame);
+            engineProtocol.setRaceTable(race);
+            engineProtocol.setOpeningBook(book);
+            try {
+                engineProtocol.run();
+            } catch (IOException e) {
+                System.out.println("Error: Cannot read commands: " + e.getMessage());
+            }
             return;
         }
 
         // Start game
-        GameController game = new GameController(depth, verbose, aiFirst);
+        GameController game = new GameController(budget, verbose, aiFirst, engine, threads);
+        game.setEndgameTable(endgame);
+        game.setRaceTable(race);
+        game.setOpeningBook(book);
+        // Verbose output from searches in the background would garble the move prompt
+        game.setPondering(ponder && !verbose);
         game.playGame();
     }
 
@@ -52,13 +216,25 @@ public class Main {
         System.out.println("╚════════════════════════════════════════════════════════╝");
         System.out.println("\nUsage: java Main [options]");
         System.out.println("\nOptions:");
-        System.out.println("  -d, --depth <n>      Set search depth (default: 3)");
+        System.out.println("  -d, --depth <n>      Set search depth (default: 6)");
+        System.out.println("  -t, --time <ms>      Time limit per move, deepens until it runs out");
+        System.out.println("  -n, --nodes <n>      Node limit per move");
+        System.out.println("  -j, --threads <n>    Search on n threads (default: 1)");
+        System.out.println("  -e, --engine <name>  expectiminimax (parallel root), lazysmp or mcts (default: expectiminimax)");
+        System.out.println("  -r, --rules <file>   Play a house-rule variant (see game.RuleTable)");
+        System.out.println("  -g, --endgame <file> Play endgames exactly from a table (see tools.EndgameGenerator)");
+        System.out.println("      --race <file>    Value races from a table (see tools.RaceTableGenerator)");
+        System.out.println("  -b, --book <file>    Play the opening from a book (see tools.OpeningBookBuilder)");
         System.out.println("  -v, --verbose        Show detailed algorithm output");
         System.out.println("  -a, --ai-first       Computer plays first (default: human first)");
+        System.out.println("      --no-ponder      Don't search while the human is choosing a move (off with -v)");
+        System.out.println("      --protocol       Run headless, driven by text commands (see game.EngineProtocol)");
         System.out.println("  -h, --help           Show this help message");
         System.out.println("\nExamples:");
         System.out.println("  java Main --depth 4 --verbose");
         System.out.println("  java Main -d 5 -v -a");
+        System.out.println("  java Main --time 2000");
+        System.out.println("  java Main --time 2000 --engine lazysmp --threads 4");
         System.out.println("\n" +
             "╔════════════════════════════════════════════════════════╗\n" +
             "║  Special Squares:                                      ║\n" +
@@ -0,0 +1,102 @@
+package computer;
+
+/**
+ * Approximate chance nodes, trading accuracy for depth:
+ *
+ * - Probability cutoff: a chance node whose path probability (the product
+ *   of the roll probabilities from the root down to it) is below epsilon
+ *   is evaluated by the heuristic instead of searched. Rolls 4 and 5 have
+ *   probability 1/16 each, so two of them in a row already fall below 0.01.
+ * - Roll sampling: chance nodes at least samplingPly plies below the root
+ *   search `samples` rolls drawn by probability instead of all five, and
+ *   take the mean of the sampled values. The draw is seeded from the
+ *   position hash, so a position always samples the same rolls and the
+ *   search stays deterministic.
+ *
+ * EXACT turns both off. tools.ApproximationError measures the error
+ * against the exact search.
+ */
+public class ChanceApproximation {
+    public static final ChanceApproximation EXACT = new ChanceApproximation(0.0, 0, 0);
+
+    private final double epsilon;
+    private final int samplingPly;
+    private final int samples;
+
+    /**
+     * @param epsilon     path probability below which chance nodes are cut off (0 = never)
+     * @param samplingPly plies below the root from which rolls are sampled (0 = never)
+     * @param samples     rolls drawn at a sampled chance node
+     */
+    public ChanceApproximation(double epsilon, int samplingPly, int samples) {
+        if (epsilon < 0.0 || epsilon >= 1.0) {
+            throw new IllegalArgumentException("Probability cutoff must be in [0, 1)");
+        }
+        if (samplingPly < 0 || (samplingPly > 0 && samples < 1)) {
+            throw new IllegalArgumentException("Sampling needs a ply of at least 1 and at least 1 sample");
+        }
+        this.epsilon = epsilon;
+        this.samplingPly = samplingPly;
+        this.samples = samples;
+    }
+
+    public static ChanceApproximation cutoff(double epsilon) {
+        return new ChanceApproximation(epsilon, 0, 0);
+    }
+
+    public static ChanceApproximation sampling(int samplingPly, int samples) {
+        return new ChanceApproximation(0.0, samplingPly, samples);
+    }
+
+    public ChanceApproximation withCutoff(double epsilon) {
+        return new ChanceApproximation(epsilon, samplingPly, samples);
+    }
+
+    public ChanceApproximation withSampling(int samplingPly, int samples) {
+        return new ChanceApproximation(epsilon, samplingPly, samples);
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    public int getSamplingPly() {
+        return samplingPly;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public boolean isExact() {
+        return epsilon == 0.0 && samplingPly == 0;
+    }
+
+    /**
+     * Whether a chance node with this path probability is cut off
+     */
+    boolean cutsOff(double pathProbability) {
+        return pathProbability < epsilon;
+    }
+
+    /**
+     * Whether a chance node this many plies below the root samples its rolls
+     */
+    boolean samples(int ply) {
+        return samplingPly > 0 && ply >= samplingPly;
+    }
+
+    @Override
+    public String toString() {
+        if (isExact()) {
+            return "exact";
+        }
+        StringBuilder sb = new StringBuilder();
+        if (epsilon > 0.0) sb.append("cutoff ").append(epsilon);
+        if (samplingPly > 0) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(samples).append(" samples from ply ").append(samplingPly);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package computer;
+
+import models.BitBoard;
+import models.Player;
+
+/**
+ * Numbering of the endgame positions: both sides have between 1 and
+ * maxPieces pieces left on the board and the game isn't over. Positions
+ * are grouped in blocks by the two piece counts; inside a block a
+ * position's number is built from the colex ranks of the two occupancy
+ * masks and the side to move. Masks that overlap get a number too, those
+ * slots are simply never used.
+ *
+ * A position's pieces can only leave the board, so its successors are in
+ * its own block or in a block with one piece fewer. Solving blocks in
+ * order of increasing piece count therefore only ever reads finished
+ * blocks besides the current one.
+ */
+public class EndgameIndex {
+    public static final int MAX_PIECES = 3;
+
+    // BINOMIAL[n][k] = n choose k, for n <= BOARD_SIZE
+    private static final int[][] BINOMIAL = new int[BitBoard.BOARD_SIZE + 1][BitBoard.PIECES_PER_PLAYER + 1];
+
+    static {
+        for (int n = 0; n <= BitBoard.BOARD_SIZE; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= BitBoard.PIECES_PER_PLAYER && k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private final int maxPieces;
+    private final long[][] blockStart;
+    private final long size;
+
+    public EndgameIndex(int maxPieces) {
+        if (maxPieces < 1 || maxPieces > MAX_PIECES) {
+            throw new IllegalArgumentException("Endgame piece count must be between 1 and " + MAX_PIECES);
+        }
+        this.maxPieces = maxPieces;
+        this.blockStart = new long[maxPieces + 1][maxPieces + 1];
+        long start = 0;
+        for (int white = 1; white <= maxPieces; white++) {
+            for (int black = 1; black <= maxPieces; black++) {
+                blockStart[white][black] = start;
+                start += blockSize(white, black);
+            }
+        }
+        this.size = start;
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Number of positions, including the unused slots
+     */
+    public long size() {
+        return size;
+    }
+
+    public long blockStart(int whitePieces, int blackPieces) {
+        return blockStart[whitePieces][blackPieces];
+    }
+
+    public static long blockSize(int whitePieces, int blackPieces) {
+        return 2L * masks(whitePieces) * masks(blackPieces);
+    }
+
+    /**
+     * Number of occupancy masks with the given number of pieces
+     */
+    public static int masks(int pieces) {
+        return BINOMIAL[BitBoard.BOARD_SIZE][pieces];
+    }
+
+    /**
+     * Whether a packed position (see BitBoard) is numbered
+     */
+    public boolean covers(long bits) {
+        if (BitBoard.winner(bits) != null) {
+            return false;
+        }
+        int white = Integer.bitCount(BitBoard.whiteMask(bits));
+        int black = Integer.bitCount(BitBoard.blackMask(bits));
+        return white >= 1 && white <= maxPieces && black >= 1 && black <= maxPieces;
+    }
+
+    /**
+     * Number of a covered position
+     */
+    public long index(long bits) {
+        int whiteMask = BitBoard.whiteMask(bits);
+        int blackMask = BitBoard.blackMask(bits);
+        int black = Integer.bitCount(blackMask);
+        long inBlock = (long) colexRank(whiteMask) * masks(black) + colexRank(blackMask);
+        return blockStart[Integer.bitCount(whiteMask)][black] + 2 * inBlock
+                + (BitBoard.sideToMove(bits) == Player.BLACK ? 1 : 0);
+    }
+
+    /**
+     * Rank of a mask among the masks with as many bits, in increasing
+     * numeric order (which nextMask() walks)
+     */
+    public static int colexRank(int mask) {
+        int rank = 0;
+        int k = 1;
+        for (int rest = mask; rest != 0; rest &= rest - 1, k++) {
+            rank += BINOMIAL[Integer.numberOfTrailingZeros(rest)][k];
+        }
+        return rank;
+    }
+
+    /**
+     * Lowest mask with the given number of bits
+     */
+    public static int firstMask(int pieces) {
+        return (1 << pieces) - 1;
+    }
+
+    /**
+     * Next larger mask with as many bits (Gosper's hack), or a mask with
+     * bits beyond the board once all have been visited
+     */
+    public static int nextMask(int mask) {
+        int lowest = mask & -mask;
+        int ripple = mask + lowest;
+        return ripple | (((mask ^ ripple) >>> 2) / lowest);
+    }
+}
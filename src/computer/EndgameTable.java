@@ -0,0 +1,132 @@
+package computer;
+
+import game.GameRules;
+import models.GameState;
+import models.Player;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Solved endgames, read from a file generated by tools.EndgameGenerator.
+ * For every position numbered by EndgameIndex the file holds the exact
+ * probability that the side to move wins with best play by both sides,
+ * quantized to 16 bits. The file is memory-mapped read-only, so it is
+ * loaded lazily by the operating system and shared by all searches and
+ * threads; a probe is an index computation and one absolute read, and
+ * allocates nothing.
+ *
+ * File layout (big-endian):
+ *   long   MAGIC
+ *   int    VERSION
+ *   int    maximum pieces per side
+ *   long   signature of the rules it was solved for (RuleTable.signature())
+ *   long   number of positions
+ *   char[] win probability of the side to move, times 65535
+ */
+public class EndgameTable {
+    public static final long MAGIC = 0x53656E6574454754L; // "SenetEGT"
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    private static final double SCALE = 65535.0;
+
+    private final EndgameIndex index;
+    private final MappedByteBuffer values;
+
+    private EndgameTable(EndgameIndex index, MappedByteBuffer values) {
+        this.index = index;
+        this.values = values;
+    }
+
+    /**
+     * Map a table file. It must have been solved for the rules GameRules
+     * currently plays by.
+     */
+    public static EndgameTable open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not an endgame table: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getLong(0) != MAGIC) {
+                throw new IOException("Not an endgame table: " + path);
+            }
+            if (buffer.getInt(8) != VERSION) {
+                throw new IOException("Unsupported endgame table version " + buffer.getInt(8) + ": " + path);
+            }
+            int maxPieces = buffer.getInt(12);
+            if (maxPieces < 1 || maxPieces > EndgameIndex.MAX_PIECES) {
+                throw new IOException("Invalid piece count " + maxPieces + " in " + path);
+            }
+            if (buffer.getLong(16) != GameRules.getRuleTable().signature()) {
+                throw new IOException("Endgame table " + path + " was solved for different rules");
+            }
+            EndgameIndex index = new EndgameIndex(maxPieces);
+            if (buffer.getLong(24) != index.size() || channel.size() != HEADER_BYTES + 2 * index.size()) {
+                throw new IOException("Truncated endgame table: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return new EndgameTable(index, buffer);
+        }
+    }
+
+    /**
+     * Write a solved table; winProbabilities is indexed by EndgameIndex
+     */
+    public static void write(Path path, EndgameIndex index, long rulesSignature,
+                             float[] winProbabilities) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putLong(MAGIC).putInt(VERSION).putInt(index.getMaxPieces())
+              .putLong(rulesSignature).putLong(index.size());
+
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(header.array());
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+            for (float p : winProbabilities) {
+                if (!chunk.hasRemaining()) {
+                    out.write(chunk.array(), 0, chunk.position());
+                    chunk.clear();
+                }
+                chunk.putChar((char) Math.round(Math.max(0.0f, Math.min(1.0f, p)) * SCALE));
+            }
+            out.write(chunk.array(), 0, chunk.position());
+        }
+    }
+
+    public int getMaxPieces() {
+        return index.getMaxPieces();
+    }
+
+    /**
+     * Whether the table has the exact value of a position
+     */
+    public boolean covers(GameState state) {
+        return index.covers(state.getBits());
+    }
+
+    /**
+     * Probability that the side to move wins a covered position
+     */
+    public double winProbability(GameState state) {
+        return values.getChar(HEADER_BYTES + 2 * (int) index.index(state.getBits())) / SCALE;
+    }
+
+    /**
+     * Expected game result of a covered position on the evaluation scale,
+     * from the given player's perspective: a certain win is
+     * Heuristic.WIN_SCORE and a certain loss -Heuristic.WIN_SCORE
+     */
+    public double score(GameState state, Player player) {
+        double p = winProbability(state);
+        if (state.getCurrentPlayer() != player) {
+            p = 1.0 - p;
+        }
+        return (2.0 * p - 1.0) * Heuristic.WIN_SCORE;
+    }
+}
@@ -0,0 +1,57 @@
+package computer;
+
+import models.Player;
+
+/**
+ * The selectable search engines
+ */
+public enum EngineType {
+    EXPECTIMINIMAX("expectiminimax") {
+        @Override
+        public SearchEngine create(Player computerPlayer, boolean verbose, int threads) {
+            Expectiminimax engine = new Expectiminimax(computerPlayer, verbose);
+            engine.setThreads(threads);
+            return engine;
+        }
+    },
+    LAZY_SMP("lazysmp") {
+        @Override
+        public SearchEngine create(Player computerPlayer, boolean verbose, int threads) {
+            return new LazySmpSearch(computerPlayer, verbose, threads);
+        }
+    },
+    MCTS("mcts") {
+        @Override
+        public SearchEngine create(Player computerPlayer, boolean verbose, int threads) {
+            return new MctsSearch(computerPlayer, verbose, threads);
+        }
+    };
+
+    private final String name;
+
+    EngineType(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Create an engine playing for the given player on the given number of threads
+     */
+    public abstract SearchEngine create(Player computerPlayer, boolean verbose, int threads);
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Look up an engine by its command-line name
+     * @return the engine type, or null if there is none with that name
+     */
+    public static EngineType fromName(String name) {
+        for (EngineType type : values()) {
+            if (type.name.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
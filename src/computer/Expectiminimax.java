@@ -4,186 +4,635 @@ import models.Player;
 import models.GameState;
 import models.Move;
 import game.GameRules;
-import game.SticksManager;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class Expectiminimax {
+public class Expectiminimax implements SearchEngine {
 
     private final Player computerPlayer;
     private final GameStats stats;
     private final boolean verbose;
+    private final TranspositionTable table;
+    private Heuristic heuristic = Heuristic.DEFAULT;
+    private EndgameTable endgame;
+    private RaceTable race;
+    private boolean star2Enabled = true;
+    private boolean futilityEnabled = true;
+    private boolean reductionsEnabled;
+    private ChanceApproximation approximation = ChanceApproximation.EXACT;
+
+    // Parallel root search (threads <= 1 means sequential)
+    private int threads = 1;
+    private boolean parallelChance;
+    private ForkJoinPool pool;
+
+    // Lazy SMP helpers start at a different depth and root move (0 = main search)
+    private int helperIndex;
+
+    private volatile SearchLimits limits;
+    private SearchListener listener;
 
     public Expectiminimax(Player computerPlayer, boolean verbose) {
+        this(computerPlayer, verbose, new TranspositionTable());
+    }
+
+    public Expectiminimax(Player computerPlayer, boolean verbose, TranspositionTable table) {
         this.computerPlayer = computerPlayer;
         this.stats = new GameStats();
         this.verbose = verbose;
+        this.table = table;
     }
 
     /**
-     * Find best move for given state and roll
+     * Find best move for given state and roll, searching to a fixed depth
      */
     public Move getBestMove(GameState state, int roll, int maxDepth) {
+        return getBestMove(state, roll, SearchBudget.depth(maxDepth));
+    }
+
+    /**
+     * Iterative deepening search: depth 1, 2, ... until the budget runs out.
+     * The result is that of the last iteration that completed; the best
+     * move of each iteration is searched first in the next one.
+     */
+    @Override
+    public GameResult search(GameState state, int roll, SearchBudget budget) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        table.newSearch();
+        GameResult result = search(state, roll, budget, new SearchLimits(budget));
+        SearchTelemetry.publish(stats);
+        event.record("expectiminimax", state, roll, result, stats);
+        return result;
+    }
+
+    /**
+     * Search with limits owned by the caller, who also starts the table's
+     * generation. Lazy SMP runs its helpers this way so one abort() stops
+     * them all.
+     */
+    GameResult search(GameState state, int roll, SearchBudget budget, SearchLimits limits) {
         stats.reset();
+        this.limits = limits;
 
-        List<Move> legalMoves = GameRules.getLegalMoves(state, roll);
+        List<Move> legalMoves = new ArrayList<>(GameRules.getLegalMoves(state, roll));
 
-        if (legalMoves.isEmpty()) return null;
+        if (legalMoves.isEmpty()) return new GameResult(0.0, null, TurnType.MAX, 0);
 
-        if (legalMoves.size() == 1) return legalMoves.get(0);
+        if (legalMoves.size() == 1) return new GameResult(0.0, legalMoves.get(0), TurnType.MAX, 0);
 
-        Move bestMove = null;
-        double bestValue = Double.NEGATIVE_INFINITY;
+        // Helpers start from different root moves so they don't all walk the same tree
+        Collections.rotate(legalMoves, -(helperIndex % legalMoves.size()));
 
         if (verbose) {
             System.out.println("\n=== Expectiminimax Search ===");
-            System.out.println("Evaluating " + legalMoves.size() + " moves...");
+            System.out.println("Evaluating " + legalMoves.size() + " moves (" + budget + ")...");
         }
 
-        for (Move move : legalMoves) {
-            GameState nextState = GameRules.applyMove(state, move);
-            nextState.switchPlayer();
-
-            // Call chance node (opponent will roll dice)
-            double value = chanceNode(nextState, maxDepth - 1,
-                                     Double.NEGATIVE_INFINITY,
-                                     Double.POSITIVE_INFINITY, false);
+        long allocatedBefore = GameStats.threadAllocatedBytes();
+
+        // The sequential search walks this single copy down and back up the tree
+        GameState searchState = state.clone();
+        Searcher searcher = newSearcher(budget.getMaxDepth());
+        GameResult result = null;
+        long nodesBefore = 0;
+
+        // Every other helper skips depth 1 and runs one iteration ahead
+        int firstDepth = Math.min(1 + (helperIndex & 1), budget.getMaxDepth());
+        for (int depth = firstDepth; depth <= budget.getMaxDepth(); depth++) {
+            // The first iteration always completes so there is a move to return
+            limits.setActive(depth > firstDepth);
+            IterationEvent event = new IterationEvent();
+            event.begin();
+            GameResult iteration = threads > 1
+                    ? searchRootParallel(searchState, legalMoves, depth, searcher, budget.getMaxDepth())
+                    : searchRoot(searchState, legalMoves, depth, searcher);
+            long nodes = stats.getNodesExplored() + searcher.getStats().getNodesExplored();
+            event.end();
+            if (event.shouldCommit()) {
+                event.depth = depth;
+                event.helper = helperIndex;
+                event.nodes = nodes - nodesBefore;
+                event.completed = !limits.isAborted();
+                if (event.completed) {
+                    event.move = String.valueOf(iteration.getBestMove());
+                    event.value = iteration.getValue();
+                }
+                event.commit();
+            }
+            if (limits.isAborted()) {
+                break;
+            }
+            result = iteration;
+            stats.recordIteration(depth, nodes - nodesBefore);
+            nodesBefore = nodes;
+            if (listener != null && helperIndex == 0) {
+                listener.iterationCompleted(result, nodes);
+            }
 
             if (verbose) {
-                System.out.printf("  Move: %s → Value: %.3f\n", move, value);
+                System.out.printf("  Depth %d: %s (value: %.3f, nodes: %d)\n",
+                                  depth, result.getBestMove(), result.getValue(), nodes);
             }
 
-            if (value > bestValue) {
-                bestValue = value;
-                bestMove = move;
+            // Next iteration searches the best move first
+            legalMoves.remove(result.getBestMove());
+            legalMoves.add(0, result.getBestMove());
+
+            if (Math.abs(result.getValue()) >= Heuristic.WIN_SCORE || !limits.worthStartingIteration()) {
+                break;
             }
         }
 
+        stats.merge(searcher.getStats());
+        if (allocatedBefore >= 0) {
+            stats.addAllocatedBytes(GameStats.threadAllocatedBytes() - allocatedBefore);
+        }
         stats.endSearch();
 
+        // Only an explicit stop() interrupts the first iteration
+        if (result == null) {
+            return new GameResult(0.0, legalMoves.get(0), TurnType.MAX, 0);
+        }
+
         if (verbose) {
-            System.out.printf("\nBest move selected: %s (value: %.3f)\n",
-                             bestMove, bestValue);
+            System.out.printf("\nBest move selected: %s (value: %.3f, depth: %d)\n",
+                             result.getBestMove(), result.getValue(), result.getDepth());
             stats.printStats();
         }
 
-        return bestMove;
+        return result;
     }
 
     /**
-     * CHANCE node - calculate expected value over all dice rolls
+     * Value of one root move searched to a fixed depth with a full window,
+     * e.g. to measure what picking it over the best move costs
      */
-    private double chanceNode(GameState state, int depth,
-                             double alpha, double beta, boolean isMaxPlayer) {
-        stats.incrementNode(TurnType.CHANCE);
-        stats.updateMaxDepth(depth);
+    public double searchMove(GameState state, Move move, int depth) {
+        table.newSearch();
+        stats.reset();
+        limits = new SearchLimits(SearchBudget.depth(depth));
+        Searcher searcher = newSearcher(depth);
+        double value = searcher.searchMove(state.clone(), move, depth,
+                                           Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        stats.merge(searcher.getStats());
+        stats.endSearch();
+        return value;
+    }
 
-        // Terminal check
-        if (depth == 0 || GameRules.isTerminalState(state)) {
-            return Heuristic.evaluate(state, computerPlayer);
+    /**
+     * Best move and value for each of the five rolls, plus the expected
+     * value of the position before the roll. The rolls are deepened
+     * together: every iteration searches all five to the same depth
+     * through the shared transposition table, so the subtrees they have
+     * in common below the first ply are searched once. With more than one
+     * thread the rolls of an iteration run in parallel. The budget covers
+     * the whole analysis.
+     *
+     * @return null if stop() interrupted the first iteration
+     */
+    public RollAnalysis analyzeAllRolls(GameState state, SearchBudget budget) {
+        if (GameRules.isTerminalState(state)) {
+            throw new IllegalArgumentException("Cannot analyze a finished game");
+        }
+        table.newSearch();
+        stats.reset();
+        SearchLimits limits = new SearchLimits(budget);
+        this.limits = limits;
+        long allocatedBefore = GameStats.threadAllocatedBytes();
+
+        int rolls = Searcher.ROLL_ORDER.length;
+        // Sequentially the rolls share one Searcher, and with it the move ordering statistics
+        List<Searcher> searchers = new ArrayList<>();
+        List<RollSearch> searches = new ArrayList<>();
+        for (int i = 0; i < rolls; i++) {
+            if (threads > 1 || searchers.isEmpty()) {
+                searchers.add(newSearcher(budget.getMaxDepth()));
+            }
+            searches.add(new RollSearch(state, Searcher.ROLL_ORDER[i], searchers.get(searchers.size() - 1)));
         }
 
-        // Calculate expected value over all possible rolls
-        double expectedValue = 0.0;
-        int[] possibleRolls = SticksManager.getAllPossibleRolls();
-
-        for (int roll : possibleRolls) {
-            double probability = SticksManager.getProbability(roll);
-            double value;
+        if (verbose) {
+            System.out.println("\n=== All-Rolls Analysis ===");
+            System.out.println("Evaluating " + rolls + " rolls (" + budget + ")...");
+        }
 
-            if (isMaxPlayer) {
-                value = maxNode(state, depth, alpha, beta, roll);
+        RollAnalysis analysis = null;
+        long nodesBefore = 0;
+        for (int depth = 1; depth <= budget.getMaxDepth(); depth++) {
+            limits.setActive(depth > 1);
+            int iterationDepth = depth;
+            if (threads > 1) {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                for (RollSearch search : searches) {
+                    tasks.add(ForkJoinTask.adapt(() -> search.iterate(iterationDepth)));
+                }
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
             } else {
-                value = minNode(state, depth, alpha, beta, roll);
+                for (RollSearch search : searches) {
+                    search.iterate(depth);
+                }
+            }
+            if (limits.isAborted()) {
+                break;
+            }
+
+            // Same summation order as a chance node
+            GameResult[] results = new GameResult[rolls + 1];
+            double expectedValue = 0.0;
+            boolean decided = true;
+            long nodes = 0;
+            for (int i = 0; i < rolls; i++) {
+                RollSearch search = searches.get(i);
+                results[search.roll] = search.result;
+                expectedValue += Searcher.ROLL_PROBABILITY[i] * search.result.getValue();
+                decided &= Math.abs(search.result.getValue()) >= Heuristic.WIN_SCORE;
+            }
+            for (Searcher searcher : searchers) {
+                nodes += searcher.getStats().getNodesExplored();
+            }
+            analysis = new RollAnalysis(results, expectedValue, depth);
+            stats.recordIteration(depth, nodes - nodesBefore);
+            nodesBefore = nodes;
+
+            if (verbose) {
+                System.out.printf("  Depth %d: expected value %.3f, nodes: %d\n", depth, expectedValue, nodes);
             }
 
-            expectedValue += probability * value;
+            if (decided || !limits.worthStartingIteration()) {
+                break;
+            }
         }
 
-        return expectedValue;
+        for (Searcher searcher : searchers) {
+            stats.merge(searcher.getStats());
+        }
+        if (allocatedBefore >= 0) {
+            stats.addAllocatedBytes(GameStats.threadAllocatedBytes() - allocatedBefore);
+        }
+        stats.endSearch();
+        SearchTelemetry.publish(stats);
+
+        if (verbose && analysis != null) {
+            System.out.println("\n" + analysis);
+            stats.printStats();
+        }
+        return analysis;
     }
 
     /**
-     * MAX node - Computer player's turn (maximize)
+     * One roll of analyzeAllRolls(), deepened one iteration at a time on
+     * its own state copy so rolls can run on different threads
      */
-    private double maxNode(GameState state, int depth,
-                          double alpha, double beta, int roll) {
-        stats.incrementNode(TurnType.MAX);
-
-        List<Move> legalMoves = GameRules.getLegalMoves(state, roll);
+    private class RollSearch {
+        private final int roll;
+        private final GameState state;
+        private final List<Move> legalMoves;
+        private final Searcher searcher;
+        private GameResult result;
+
+        RollSearch(GameState state, int roll, Searcher searcher) {
+            this.roll = roll;
+            this.state = state.clone();
+            this.legalMoves = new ArrayList<>(GameRules.getLegalMoves(state, roll));
+            this.searcher = searcher;
+        }
 
-        // No legal moves - skip turn
-        if (legalMoves.isEmpty()) {
-            GameState nextState = state.clone();
-            nextState.switchPlayer();
-            return chanceNode(nextState, depth - 1, alpha, beta, false);
+        void iterate(int depth) {
+            if (legalMoves.isEmpty()) {
+                result = new GameResult(searcher.searchPass(state, depth), null, TurnType.MAX, depth);
+                return;
+            }
+            GameResult iteration = searchRoot(state, legalMoves, depth, searcher);
+            if (iteration != null) {
+                result = iteration;
+                // Next iteration searches the best move first
+                legalMoves.remove(result.getBestMove());
+                legalMoves.add(0, result.getBestMove());
+            }
         }
+    }
 
-        double maxValue = Double.NEGATIVE_INFINITY;
+    private GameResult searchRoot(GameState searchState, List<Move> legalMoves, int depth,
+                                  Searcher searcher) {
+        Move bestMove = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
 
         for (Move move : legalMoves) {
-            GameState nextState = GameRules.applyMove(state, move);
+            RootMoveEvent event = new RootMoveEvent();
+            event.begin();
+            long nodesBefore = searcher.getStats().getNodesExplored();
 
-            // Terminal state check
-            if (GameRules.isTerminalState(nextState)) {
-                return Heuristic.evaluate(nextState, computerPlayer);
-            }
+            // A move that can't beat the best so far fails low and is not selected
+            double value = searcher.searchMove(searchState, move, depth,
+                                               bestValue, Double.POSITIVE_INFINITY);
 
-            nextState.switchPlayer();
-            double value = chanceNode(nextState, depth - 1, alpha, beta, false);
+            event.record(depth, move, searcher.getStats().getNodesExplored() - nodesBefore, value);
 
-            maxValue = Math.max(maxValue, value);
-            alpha = Math.max(alpha, value);
+            if (limits.isAborted()) {
+                return null;
+            }
 
-            // Alpha-beta pruning
-            if (beta <= alpha) {
-                break;
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = move;
             }
         }
 
-        return maxValue;
+        return new GameResult(bestValue, bestMove, TurnType.MAX, depth);
     }
 
     /**
-     * MIN node - Opponent's turn (minimize)
+     * Parallel root search. The first (expected best) move is searched on
+     * the calling thread to get a bound, then the other moves run as
+     * ForkJoin tasks, each with its own Searcher and copy of the state.
+     * Tasks search with alpha just below the best value found so far, so a
+     * move that fails low is strictly worse than some other move; every
+     * other move gets its exact value. Picking the highest exact value,
+     * ties going to the earlier move, gives the same move and value as the
+     * sequential search.
      */
-    private double minNode(GameState state, int depth,
-                          double alpha, double beta, int roll) {
-        stats.incrementNode(TurnType.MIN);
+    private GameResult searchRootParallel(GameState searchState, List<Move> legalMoves, int depth,
+                                          Searcher searcher, int maxDepth) {
+        int count = legalMoves.size();
+        double[] values = new double[count];
+        boolean[] exact = new boolean[count];
+
+        RootMoveEvent event = new RootMoveEvent();
+        event.begin();
+        long nodesBefore = searcher.getStats().getNodesExplored();
+        values[0] = searcher.searchMove(searchState, legalMoves.get(0), depth,
+                                        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        exact[0] = true;
+        event.record(depth, legalMoves.get(0), searcher.getStats().getNodesExplored() - nodesBefore, values[0]);
+        if (limits.isAborted()) {
+            return null;
+        }
 
-        List<Move> legalMoves = GameRules.getLegalMoves(state, roll);
+        AtomicLong bestBound = new AtomicLong(Double.doubleToLongBits(values[0]));
+        List<RootMoveTask> tasks = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            tasks.add(new RootMoveTask(searchState.clone(), legalMoves.get(i), depth, maxDepth, bestBound));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
 
-        // No legal moves - skip turn
-        if (legalMoves.isEmpty()) {
-            GameState nextState = state.clone();
-            nextState.switchPlayer();
-            return chanceNode(nextState, depth - 1, alpha, beta, true);
+        for (int i = 1; i < count; i++) {
+            RootMoveTask task = tasks.get(i - 1);
+            values[i] = task.value;
+            exact[i] = task.exact;
+            stats.merge(task.taskStats);
+        }
+        if (limits.isAborted()) {
+            return null;
         }
 
-        double minValue = Double.POSITIVE_INFINITY;
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (exact[i] && values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return new GameResult(values[best], legalMoves.get(best), TurnType.MAX, depth);
+    }
 
-        for (Move move : legalMoves) {
-            GameState nextState = GameRules.applyMove(state, move);
+    /**
+     * Searches one root move for the parallel root search
+     */
+    private class RootMoveTask extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final GameState state;
+        private final Move move;
+        private final int depth;
+        private final int maxDepth;
+        private final AtomicLong bestBound;
+        private double value;
+        private boolean exact;
+        private GameStats taskStats;
+
+        RootMoveTask(GameState state, Move move, int depth, int maxDepth, AtomicLong bestBound) {
+            this.state = state;
+            this.move = move;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.bestBound = bestBound;
+        }
 
-            // Terminal state check
-            if (GameRules.isTerminalState(nextState)) {
-                return Heuristic.evaluate(nextState, computerPlayer);
+        @Override
+        protected Void compute() {
+            RootMoveEvent event = new RootMoveEvent();
+            event.begin();
+            long allocatedBefore = GameStats.threadAllocatedBytes();
+            search();
+            if (allocatedBefore >= 0) {
+                taskStats.addAllocatedBytes(GameStats.threadAllocatedBytes() - allocatedBefore);
             }
+            event.record(depth, move, taskStats.getNodesExplored(), value);
+            return null;
+        }
 
-            nextState.switchPlayer();
-            double value = chanceNode(nextState, depth - 1, alpha, beta, true);
+        private void search() {
+            double alpha = Math.nextDown(Double.longBitsToDouble(bestBound.get()));
+            if (parallelChance) {
+                value = searchChanceLayer(state, move, depth, maxDepth);
+                exact = true;
+            } else {
+                Searcher searcher = newSearcher(maxDepth);
+                value = searcher.searchMove(state, move, depth, alpha, Double.POSITIVE_INFINITY);
+                exact = value > alpha;
+                taskStats = searcher.getStats();
+            }
+            if (exact) {
+                raiseBound(bestBound, value);
+            }
+        }
 
-            minValue = Math.min(minValue, value);
-            beta = Math.min(beta, value);
+        /**
+         * Exact value of a root move with the opponent's five rolls
+         * searched as separate tasks
+         */
+        private double searchChanceLayer(GameState state, Move move, int depth, int maxDepth) {
+            GameRules.makeMove(state, move);
+            if (GameRules.isTerminalState(state)) {
+                double value = heuristic.score(state, computerPlayer);
+                GameRules.unmakeMove(state);
+                taskStats = new GameStats();
+                return value;
+            }
+            state.switchPlayer();
+
+            // Table probes and the depth limit, as for a chance node searched sequentially
+            Searcher leafSearcher = newSearcher(maxDepth);
+            double leaf = leafSearcher.chanceLayerLeaf(state, depth);
+            if (!Double.isNaN(leaf)) {
+                GameRules.unmakeMove(state);
+                taskStats = leafSearcher.getStats();
+                return leaf;
+            }
 
-            // Alpha-beta pruning
-            if (beta <= alpha) {
-                break;
+            int rolls = Searcher.ROLL_ORDER.length;
+            List<RecursiveTask<Double>> rollTasks = new ArrayList<>();
+            List<Searcher> searchers = new ArrayList<>();
+            for (int i = 0; i < rolls; i++) {
+                int rollIndex = i;
+                GameState rollState = state.clone();
+                Searcher searcher = newSearcher(maxDepth);
+                searchers.add(searcher);
+                rollTasks.add(new RecursiveTask<Double>() {
+                    @Override
+                    protected Double compute() {
+                        return searcher.rollNode(rollState, depth, rollIndex);
+                    }
+                });
             }
+            ForkJoinTask.invokeAll(rollTasks);
+            GameRules.unmakeMove(state);
+
+            // Same summation order as a chance node searched sequentially
+            double expectedValue = 0.0;
+            taskStats = leafSearcher.getStats();
+            for (int i = 0; i < rolls; i++) {
+                expectedValue += Searcher.ROLL_PROBABILITY[i] * rollTasks.get(i).join();
+                taskStats.merge(searchers.get(i).getStats());
+            }
+            return expectedValue;
+        }
+    }
+
+    private static void raiseBound(AtomicLong bound, double value) {
+        long current = bound.get();
+        while (value > Double.longBitsToDouble(current)
+                && !bound.compareAndSet(current, Double.doubleToLongBits(value))) {
+            current = bound.get();
         }
+    }
+
+    /**
+     * Abort the running search; it returns the result of the last
+     * completed iteration
+     */
+    @Override
+    public void stop() {
+        SearchLimits running = limits;
+        if (running != null) {
+            running.abort();
+        }
+    }
+
+    @Override
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    void setHelperIndex(int helperIndex) {
+        this.helperIndex = helperIndex;
+    }
+
+    private Searcher newSearcher(int maxDepth) {
+        return new Searcher(computerPlayer, heuristic, endgame, race, table, limits, star2Enabled,
+                            futilityEnabled, reductionsEnabled, approximation, maxDepth);
+    }
+
+    /**
+     * Evaluate leaves with these weights instead of the default ones. The
+     * transposition table must not hold values from other weights.
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Take the exact value of positions the table covers instead of
+     * searching them (null = no table)
+     */
+    @Override
+    public void setEndgameTable(EndgameTable endgame) {
+        this.endgame = endgame;
+    }
+
+    /**
+     * Value race positions with the table instead of searching them
+     * (null = no table)
+     */
+    @Override
+    public void setRaceTable(RaceTable race) {
+        this.race = race;
+    }
+
+    /**
+     * Enable or disable Star2 probing at chance nodes (Star1 is always on)
+     */
+    public void setStar2Enabled(boolean enabled) {
+        this.star2Enabled = enabled;
+    }
+
+    /**
+     * Enable or disable futility pruning near the horizon. A move is
+     * skipped when its evaluation plus the largest change one move can
+     * cause (Heuristic.maxMoveSwing()) in each remaining ply can't reach
+     * the window. Positions where a side could still bear off its last
+     * piece within those plies are never pruned, since a win isn't bounded
+     * by that swing, so the result is the same as without it. It is off
+     * while an endgame or race table is set, whose values aren't bounded
+     * that way either.
+     */
+    public void setFutilityPruning(boolean enabled) {
+        this.futilityEnabled = enabled;
+    }
+
+    /**
+     * Enable or disable late-move reductions: quiet moves ordered late are
+     * first searched one ply shallower with a null window, and searched
+     * fully only if that beats the bound. Faster, but not exact.
+     */
+    public void setLateMoveReductions(boolean enabled) {
+        this.reductionsEnabled = enabled;
+    }
+
+    /**
+     * Search chance nodes approximately (see ChanceApproximation). The
+     * transposition table must not hold values from other settings.
+     */
+    public void setChanceApproximation(ChanceApproximation approximation) {
+        this.approximation = approximation;
+    }
+
+    /**
+     * Number of threads for the root search; 1 searches sequentially
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        this.threads = threads;
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+        }
+    }
+
+    /**
+     * In parallel mode, also split the opponent's roll layer below each
+     * root move into separate tasks. Gives more parallelism when there are
+     * few root moves, at the cost of Star1/Star2 pruning on that layer.
+     */
+    public void setParallelChance(boolean parallelChance) {
+        this.parallelChance = parallelChance;
+    }
 
-        return minValue;
+    public TranspositionTable getTable() {
+        return table;
     }
 
+    @Override
     public GameStats getStats() {
         return stats;
     }
@@ -6,11 +6,17 @@ public class GameResult {
     private final double value;
     private final Move bestMove;
     private final TurnType nodeType;
+    private final int depth;
 
     public GameResult(double value, Move bestMove, TurnType nodeType) {
+        this(value, bestMove, nodeType, 0);
+    }
+
+    public GameResult(double value, Move bestMove, TurnType nodeType, int depth) {
         this.value = value;
         this.bestMove = bestMove;
         this.nodeType = nodeType;
+        this.depth = depth;
     }
 
     public double getValue() {
@@ -25,9 +31,14 @@ public class GameResult {
         return nodeType;
     }
 
+    /** Depth of the last completed search iteration */
+    public int getDepth() {
+        return depth;
+    }
+
     @Override
     public String toString() {
-        return String.format("GameResult[value=%.3f, move=%s, type=%s]",
-            value, bestMove, nodeType);
+        return String.format("GameResult[value=%.3f, move=%s, type=%s, depth=%d]",
+            value, bestMove, nodeType, depth);
     }
 }
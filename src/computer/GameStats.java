@@ -1,25 +1,73 @@
 package computer;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Search statistics.
+ *
+ * The increment methods are meant for the single thread that owns the
+ * instance. A parallel search gives every worker its own GameStats and
+ * folds them into the engine's instance with merge(), which (like the
+ * getters) is safe to call from several threads.
+ *
+ * Engines publish the statistics of every search to SearchTelemetry,
+ * which exposes them over JMX. The getters double as the attributes of
+ * that MBean, so they only return numbers and arrays.
+ */
 public class GameStats {
-    private int nodesExplored;
-    private int maxNodes;
-    private int minNodes;
-    private int chanceNodes;
+    private long nodesExplored;
+    private long maxNodes;
+    private long minNodes;
+    private long chanceNodes;
     private int maxDepthReached;
-    private long startTime;
-    private long endTime;
+    private long chanceCutoffs;
+    private long tableProbes;
+    private long tableHits;
+    private long maxCutoffs;
+    private long minCutoffs;
+    private long firstMoveCutoffs;
+    private long endgameHits;
+    private long raceHits;
+    private long probabilityCutoffs;
+    private long sampledChanceNodes;
+    private long futilityPrunes;
+    private long reductions;
+    private long reSearches;
+    private long bytesAllocated;
+    private final long[] iterationNodes = new long[SearchBudget.MAX_DEPTH + 1];
+    private long searches;
+    private long startNanos;
+    private long searchNanos;
 
     public GameStats() {
         reset();
     }
 
-    public void reset() {
+    public synchronized void reset() {
         nodesExplored = 0;
         maxNodes = 0;
         minNodes = 0;
         chanceNodes = 0;
         maxDepthReached = 0;
-        startTime = System.currentTimeMillis();
+        chanceCutoffs = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        maxCutoffs = 0;
+        minCutoffs = 0;
+        firstMoveCutoffs = 0;
+        endgameHits = 0;
+        raceHits = 0;
+        probabilityCutoffs = 0;
+        sampledChanceNodes = 0;
+        futilityPrunes = 0;
+        reductions = 0;
+        reSearches = 0;
+        bytesAllocated = 0;
+        Arrays.fill(iterationNodes, 0);
+        searches = 0;
+        searchNanos = 0;
+        startNanos = System.nanoTime();
     }
 
     public void incrementNode(TurnType type) {
@@ -37,27 +85,362 @@ public class GameStats {
         }
     }
 
-    public void endSearch() {
-        endTime = System.currentTimeMillis();
+    public void incrementChanceCutoff() {
+        chanceCutoffs++;
+    }
+
+    public void incrementTableProbe() {
+        tableProbes++;
+    }
+
+    public void incrementTableHit() {
+        tableHits++;
+    }
+
+    /**
+     * A chance node took its exact value from the endgame table
+     */
+    public void incrementEndgameHit() {
+        endgameHits++;
+    }
+
+    /**
+     * A chance node took its value from the race table
+     */
+    public void incrementRaceHit() {
+        raceHits++;
+    }
+
+    /**
+     * A chance node was evaluated instead of searched because its path
+     * probability is below the approximation's epsilon
+     */
+    public void incrementProbabilityCutoff() {
+        probabilityCutoffs++;
+    }
+
+    /**
+     * A chance node searched sampled rolls instead of all of them
+     */
+    public void incrementSampledChance() {
+        sampledChanceNodes++;
+    }
+
+    /**
+     * A move of a MAX/MIN node was skipped by futility pruning
+     */
+    public void incrementFutilityPrune() {
+        futilityPrunes++;
+    }
+
+    /**
+     * A late move was searched with a reduced depth
+     */
+    public void incrementReduction() {
+        reductions++;
+    }
+
+    /**
+     * A reduced move beat the window and was searched again at full depth
+     */
+    public void incrementReSearch() {
+        reSearches++;
+    }
+
+    /**
+     * A MAX or MIN node failed high/low; firstMove tells whether the first
+     * move searched caused it (the goal of move ordering)
+     */
+    public void incrementCutoff(TurnType type, boolean firstMove) {
+        if (type == TurnType.MAX) {
+            maxCutoffs++;
+        } else {
+            minCutoffs++;
+        }
+        if (firstMove) {
+            firstMoveCutoffs++;
+        }
+    }
+
+    /**
+     * An iterative-deepening iteration to the given depth completed after
+     * searching the given number of nodes
+     */
+    public synchronized void recordIteration(int depth, long nodes) {
+        iterationNodes[depth] += nodes;
+    }
+
+    /**
+     * Account for heap memory allocated by a thread while searching, as
+     * measured with threadAllocatedBytes()
+     */
+    public synchronized void addAllocatedBytes(long bytes) {
+        bytesAllocated += bytes;
+    }
+
+    /**
+     * Bytes the current thread has allocated so far, or -1 if the JVM
+     * can't tell
+     */
+    public static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add the counters of a worker's instance to this one. The worker must
+     * be finished with it (e.g. its task has been joined). Search counts
+     * and times add up too, so merging the statistics of whole searches
+     * gives totals over all of them.
+     */
+    public synchronized void merge(GameStats other) {
+        GameStats o = other.snapshot();
+        nodesExplored += o.nodesExplored;
+        maxNodes += o.maxNodes;
+        minNodes += o.minNodes;
+        chanceNodes += o.chanceNodes;
+        maxDepthReached = Math.max(maxDepthReached, o.maxDepthReached);
+        chanceCutoffs += o.chanceCutoffs;
+        tableProbes += o.tableProbes;
+        tableHits += o.tableHits;
+        maxCutoffs += o.maxCutoffs;
+        minCutoffs += o.minCutoffs;
+        firstMoveCutoffs += o.firstMoveCutoffs;
+        endgameHits += o.endgameHits;
+        raceHits += o.raceHits;
+        probabilityCutoffs += o.probabilityCutoffs;
+        sampledChanceNodes += o.sampledChanceNodes;
+        futilityPrunes += o.futilityPrunes;
+        reductions += o.reductions;
+        reSearches += o.reSearches;
+        bytesAllocated += o.bytesAllocated;
+        for (int d = 0; d < iterationNodes.length; d++) {
+            iterationNodes[d] += o.iterationNodes[d];
+        }
+        searches += o.searches;
+        searchNanos += o.searchNanos;
+    }
+
+    /**
+     * A consistent copy, taken under this instance's lock
+     */
+    public synchronized GameStats snapshot() {
+        GameStats copy = new GameStats();
+        copy.nodesExplored = nodesExplored;
+        copy.maxNodes = maxNodes;
+        copy.minNodes = minNodes;
+        copy.chanceNodes = chanceNodes;
+        copy.maxDepthReached = maxDepthReached;
+        copy.chanceCutoffs = chanceCutoffs;
+        copy.tableProbes = tableProbes;
+        copy.tableHits = tableHits;
+        copy.maxCutoffs = maxCutoffs;
+        copy.minCutoffs = minCutoffs;
+        copy.firstMoveCutoffs = firstMoveCutoffs;
+        copy.endgameHits = endgameHits;
+        copy.raceHits = raceHits;
+        copy.probabilityCutoffs = probabilityCutoffs;
+        copy.sampledChanceNodes = sampledChanceNodes;
+        copy.futilityPrunes = futilityPrunes;
+        copy.reductions = reductions;
+        copy.reSearches = reSearches;
+        copy.bytesAllocated = bytesAllocated;
+        System.arraycopy(iterationNodes, 0, copy.iterationNodes, 0, iterationNodes.length);
+        copy.searches = searches;
+        copy.searchNanos = searchNanos;
+        copy.startNanos = startNanos;
+        return copy;
     }
 
-    public void printStats() {
+    /**
+     * The search this instance counts is over: takes its time and counts
+     * it as one search
+     */
+    public synchronized void endSearch() {
+        searchNanos = System.nanoTime() - startNanos;
+        searches = 1;
+    }
+
+    public synchronized void printStats() {
         System.out.println("\n╔════════════════ SEARCH STATISTICS ════════════════╗");
         System.out.printf("║ Total nodes explored: %-27d ║\n", nodesExplored);
         System.out.printf("║   - MAX nodes:        %-27d ║\n", maxNodes);
         System.out.printf("║   - MIN nodes:        %-27d ║\n", minNodes);
         System.out.printf("║   - CHANCE nodes:     %-27d ║\n", chanceNodes);
         System.out.printf("║ Max depth reached:    %-27d ║\n", maxDepthReached);
-        System.out.printf("║ Time taken:           %-24d ms ║\n", (endTime - startTime));
+        System.out.printf("║ Nodes per iteration:  %-27s ║\n", iterationSummary());
+        System.out.printf("║ Branching factor:     %-27s ║\n", String.format("%.2f", getEffectiveBranchingFactor()));
+        System.out.printf("║ Cutoffs MAX/MIN/CHNC: %-27s ║\n", maxCutoffs + " / " + minCutoffs + " / " + chanceCutoffs);
+        System.out.printf("║ TT hits / probes:     %-27s ║\n",
+                          String.format("%d / %d (%.1f%%)", tableHits, tableProbes, 100.0 * getTableHitRate()));
+        System.out.printf("║ First-move cutoffs:   %-27s ║\n",
+                          String.format("%d / %d (%.1f%%)", firstMoveCutoffs, maxCutoffs + minCutoffs,
+                                        100.0 * getFirstMoveCutoffRate()));
+        System.out.printf("║ Endgame table hits:   %-27d ║\n", endgameHits);
+        System.out.printf("║ Race table hits:      %-27d ║\n", raceHits);
+        if (probabilityCutoffs > 0 || sampledChanceNodes > 0) {
+            System.out.printf("║ Probability cutoffs:  %-27d ║\n", probabilityCutoffs);
+            System.out.printf("║ Sampled chance nodes: %-27d ║\n", sampledChanceNodes);
+        }
+        if (futilityPrunes > 0 || reductions > 0) {
+            System.out.printf("║ Futility prunes:      %-27d ║\n", futilityPrunes);
+            System.out.printf("║ Reductions / redone:  %-27s ║\n", reductions + " / " + reSearches);
+        }
+        System.out.printf("║ Bytes allocated:      %-27s ║\n",
+                          String.format("%d (%.2f / node)", bytesAllocated,
+                                        nodesExplored == 0 ? 0.0 : (double) bytesAllocated / nodesExplored));
+        System.out.printf("║ Time taken:           %-24.3f ms ║\n", searchNanos / 1e6);
+        System.out.printf("║ Nodes per second:     %-27.0f ║\n", getNodesPerSecond());
         System.out.println("╚═══════════════════════════════════════════════════╝");
     }
 
+    /**
+     * Nodes of the last few iterations, deepest last
+     */
+    private String iterationSummary() {
+        StringBuilder sb = new StringBuilder();
+        int shown = 0;
+        for (int d = iterationNodes.length - 1; d > 0 && shown < 3; d--) {
+            if (iterationNodes[d] > 0) {
+                sb.insert(0, d + ":" + iterationNodes[d] + (shown > 0 ? " " : ""));
+                shown++;
+            }
+        }
+        return sb.length() == 0 ? "-" : sb.toString();
+    }
+
     // Getters
-    public int getNodesExplored() {
+    public synchronized long getNodesExplored() {
         return nodesExplored;
     }
 
-    public long getTimeTaken() {
-        return endTime - startTime;
+    public synchronized long getMaxNodes() {
+        return maxNodes;
+    }
+
+    public synchronized long getMinNodes() {
+        return minNodes;
+    }
+
+    public synchronized long getChanceNodes() {
+        return chanceNodes;
+    }
+
+    public synchronized int getMaxDepthReached() {
+        return maxDepthReached;
+    }
+
+    /**
+     * Nodes searched by the iterations to each depth (index = depth)
+     */
+    public synchronized long[] getIterationNodes() {
+        return iterationNodes.clone();
+    }
+
+    /**
+     * Growth of the tree per ply: nodes of the deepest completed iteration
+     * over nodes of the one before it, 0 with fewer than two iterations
+     */
+    public synchronized double getEffectiveBranchingFactor() {
+        int deepest = iterationNodes.length - 1;
+        while (deepest > 0 && iterationNodes[deepest] == 0) {
+            deepest--;
+        }
+        if (deepest < 2 || iterationNodes[deepest - 1] == 0) {
+            return 0.0;
+        }
+        return (double) iterationNodes[deepest] / iterationNodes[deepest - 1];
+    }
+
+    public synchronized long getMaxCutoffs() {
+        return maxCutoffs;
+    }
+
+    public synchronized long getMinCutoffs() {
+        return minCutoffs;
+    }
+
+    public synchronized long getChanceCutoffs() {
+        return chanceCutoffs;
+    }
+
+    public synchronized long getTableProbes() {
+        return tableProbes;
+    }
+
+    public synchronized long getTableHits() {
+        return tableHits;
+    }
+
+    public synchronized double getTableHitRate() {
+        return tableProbes == 0 ? 0.0 : (double) tableHits / tableProbes;
+    }
+
+    /**
+     * Fraction of MAX/MIN cutoffs caused by the first move searched
+     */
+    public synchronized double getFirstMoveCutoffRate() {
+        long cutoffs = maxCutoffs + minCutoffs;
+        return cutoffs == 0 ? 0.0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    public synchronized long getEndgameHits() {
+        return endgameHits;
+    }
+
+    public synchronized long getRaceHits() {
+        return raceHits;
+    }
+
+    public synchronized long getProbabilityCutoffs() {
+        return probabilityCutoffs;
+    }
+
+    public synchronized long getSampledChanceNodes() {
+        return sampledChanceNodes;
+    }
+
+    public synchronized long getFutilityPrunes() {
+        return futilityPrunes;
+    }
+
+    public synchronized long getReductions() {
+        return reductions;
+    }
+
+    public synchronized long getReSearches() {
+        return reSearches;
+    }
+
+    public synchronized long getBytesAllocated() {
+        return bytesAllocated;
+    }
+
+    /**
+     * Searches counted: 1 for one finished search, the number merged for totals
+     */
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    public synchronized long getTimeNanos() {
+        return searchNanos;
+    }
+
+    /**
+     * Search time in milliseconds
+     */
+    public synchronized long getTimeTaken() {
+        return searchNanos / 1_000_000;
+    }
+
+    public synchronized double getNodesPerSecond() {
+        return searchNanos == 0 ? 0.0 : nodesExplored * 1e9 / searchNanos;
     }
 }
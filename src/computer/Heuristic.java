@@ -2,7 +2,14 @@ package computer;
 
 import models.*;
 import game.GameRules;
+import game.RuleTable;
+import utils.Constants;
 
+/**
+ * Position evaluation. The weights of the four terms can be changed per
+ * engine (e.g. to test a tuning in a tournament); the static evaluate()
+ * uses the default weights.
+ */
 public class Heuristic {
 
     // Weights for evaluation (simplified: 0.5 to 50 range)
@@ -11,17 +18,81 @@ public class Heuristic {
     private static final double PIECE_SAFETY_WEIGHT = 2.0;
     private static final double SPECIAL_SQUARE_WEIGHT = 10.0;
 
+    public static final Heuristic DEFAULT = new Heuristic(PIECE_EXITED_WEIGHT, PIECE_ADVANCEMENT_WEIGHT,
+                                                          PIECE_SAFETY_WEIGHT, SPECIAL_SQUARE_WEIGHT);
+
+    /**
+     * Value of a won (or, negated, lost) game. Every evaluation lies in
+     * [MIN_SCORE, MAX_SCORE], which the chance node pruning relies on.
+     */
+    public static final double WIN_SCORE = 10000.0;
+    public static final double MAX_SCORE = WIN_SCORE;
+    public static final double MIN_SCORE = -WIN_SCORE;
+
+    /**
+     * Bound on the non-terminal score: with the default weights at most
+     * 6 exits ahead (300), advancement of 7 pieces on 24-30 against one
+     * piece on 1 (940), safety (28) and special squares (160) stay well
+     * below this. Other weights are clamped to it.
+     */
+    public static final double HEURISTIC_LIMIT = 1500.0;
+
+    private static final int LAST_FIVE_SQUARES = BitBoard.range(26, 30);
+    private static final int MIDDLE_SQUARES = BitBoard.range(16, 25);
+
+    /**
+     * Debug mode (-Dsenet.checkEval=true): every evaluation is compared
+     * against a recomputation from scratch, which throws on a mismatch
+     */
+    private static final boolean CHECK_EVALUATION = Boolean.getBoolean("senet.checkEval");
+
+    private final double exitedWeight;
+    private final double advancementWeight;
+    private final double safetyWeight;
+    private final double specialSquareWeight;
+
+    public Heuristic(double exitedWeight, double advancementWeight,
+                     double safetyWeight, double specialSquareWeight) {
+        this.exitedWeight = exitedWeight;
+        this.advancementWeight = advancementWeight;
+        this.safetyWeight = safetyWeight;
+        this.specialSquareWeight = specialSquareWeight;
+    }
+
+    /**
+     * Evaluate with the default weights
+     */
+    public static double evaluate(GameState state, Player computerPlayer) {
+        return DEFAULT.score(state, computerPlayer);
+    }
+
     /**
      * Evaluate game state from Computer player's perspective
      * Higher value = better for Computer
+     *
+     * Runs in constant time: the square sums are maintained by GameState
+     * as pieces move, the other terms are bit counts and bit tests on the
+     * occupancy masks.
      */
-    public static double evaluate(GameState state, Player computerPlayer) {
+    public double score(GameState state, Player computerPlayer) {
+        double score = scoreIncremental(state, computerPlayer);
+        if (CHECK_EVALUATION) {
+            double expected = scoreFromScratch(state, computerPlayer);
+            if (score != expected) {
+                throw new IllegalStateException("Incremental evaluation " + score
+                        + " differs from full evaluation " + expected + " at " + state.getBits());
+            }
+        }
+        return score;
+    }
+
+    private double scoreIncremental(GameState state, Player computerPlayer) {
         // Terminal state check
         if (GameRules.isTerminalState(state)) {
             if (state.getWinner() == computerPlayer) {
-                return Double.POSITIVE_INFINITY;
+                return WIN_SCORE;
             } else {
-                return Double.NEGATIVE_INFINITY;
+                return -WIN_SCORE;
             }
         }
 
@@ -30,7 +101,7 @@ public class Heuristic {
         // 1. Pieces exited (most important)
         score += (state.getPiecesExited(computerPlayer) -
                   state.getPiecesExited(computerPlayer.opponent()))
-                  * PIECE_EXITED_WEIGHT;
+                  * exitedWeight;
 
         // 2. Piece advancement
         score += calculateAdvancementScore(state, computerPlayer);
@@ -41,73 +112,178 @@ public class Heuristic {
         // 4. Special square control
         score += calculateSpecialSquareScore(state, computerPlayer);
 
-        return score;
+        return Math.max(-HEURISTIC_LIMIT, Math.min(HEURISTIC_LIMIT, score));
     }
 
     /**
      * Calculate score based on how far pieces have advanced
      */
-    private static double calculateAdvancementScore(GameState state, Player player) {
-        Board board = state.getBoard();
-        int[] positions = board.getPiecePositions(player);
-        int[] opponentPositions = board.getPiecePositions(player.opponent());
-
-        double playerSum = 0;
-        for (int pos : positions) {
-            // Pieces closer to exit are more valuable
-            playerSum += pos; // Linear advancement score
-        }
+    private double calculateAdvancementScore(GameState state, Player player) {
+        // Pieces closer to exit are more valuable - linear advancement score
+        double playerSum = state.getSquareSum(player);
+        double opponentSum = state.getSquareSum(player.opponent());
 
-        double opponentSum = 0;
-        for (int pos : opponentPositions) {
-            opponentSum += pos;
-        }
-
-        return (playerSum - opponentSum) * PIECE_ADVANCEMENT_WEIGHT;
+        return (playerSum - opponentSum) * advancementWeight;
     }
 
     /**
      * Calculate safety score (pieces past opponent pieces are safer)
      */
-    private static double calculateSafetyScore(GameState state, Player player) {
-        Board board = state.getBoard();
-        int[] positions = board.getPiecePositions(player);
-
-        double safetyScore = 0;
-        for (int pos : positions) {
-            // Pieces in last 5 squares are very safe (can't be swapped easily)
-            if (pos >= 26) {
-                safetyScore += 2.0;
-            }
-            // Pieces past square 15 are safer
-            else if (pos > 15) {
-                safetyScore += 0.5;
-            }
-        }
+    private double calculateSafetyScore(GameState state, Player player) {
+        int pieces = state.getOccupancy(player);
+
+        // Pieces in last 5 squares are very safe (can't be swapped easily)
+        double safetyScore = Integer.bitCount(pieces & LAST_FIVE_SQUARES) * 2.0;
+        // Pieces past square 15 are safer
+        safetyScore += Integer.bitCount(pieces & MIDDLE_SQUARES) * 0.5;
 
-        return safetyScore * PIECE_SAFETY_WEIGHT;
+        return safetyScore * safetyWeight;
     }
 
     /**
      * Score for controlling special squares
      */
-    private static double calculateSpecialSquareScore(GameState state, Player player) {
-        Board board = state.getBoard();
+    private double calculateSpecialSquareScore(GameState state, Player player) {
+        int pieces = state.getOccupancy(player);
         double score = 0;
 
         // Avoid water (27)
-        if (board.getPieceAt(27) == player) {
+        if ((pieces & BitBoard.bit(27)) != 0) {
             score -= 5.0; // Penalty for being on water
         }
 
         // Reward for being close to exit (28, 29, 30)
-        if (board.getPieceAt(28) == player) score += 3.0;
-        if (board.getPieceAt(29) == player) score += 4.0;
-        if (board.getPieceAt(30) == player) score += 5.0;
+        if ((pieces & BitBoard.bit(28)) != 0) score += 3.0;
+        if ((pieces & BitBoard.bit(29)) != 0) score += 4.0;
+        if ((pieces & BitBoard.bit(30)) != 0) score += 5.0;
 
         // Reward for passing happiness (26)
-        if (board.getPieceAt(26) == player) score += 4.0;
+        if ((pieces & BitBoard.bit(26)) != 0) score += 4.0;
+
+        return score * specialSquareWeight;
+    }
 
-        return score * SPECIAL_SQUARE_WEIGHT;
+    /**
+     * Largest change of the score a single move can cause under the given
+     * rules, for futility pruning. A move changes at most two pieces (the
+     * one moving and, for a swap, the one it swaps with) and the score is a
+     * sum of per-piece terms, so this is the largest change of those terms
+     * over every move the rules allow, for either side. The clamp to
+     * HEURISTIC_LIMIT can only make changes smaller. A move that wins the
+     * game is not covered: the score jumps to +-WIN_SCORE, so callers must
+     * rule out positions where a side could bear off its last piece.
+     */
+    public double maxMoveSwing(RuleTable rules) {
+        double swing = 0.0;
+        for (int from = 1; from <= BitBoard.BOARD_SIZE; from++) {
+            for (int roll = Constants.MIN_ROLL; roll <= Constants.MAX_ROLL; roll++) {
+                for (int occupant : new int[]{RuleTable.EMPTY, RuleTable.OPPONENT}) {
+                    long destinations = rules.destinations(from, roll, occupant);
+                    boolean swap = occupant == RuleTable.OPPONENT && rules.swaps(from, roll);
+                    for (long d = destinations; d != 0; d &= d - 1) {
+                        int to = Long.numberOfTrailingZeros(d);
+                        // The computer's piece moves (and pushes an opponent's back) ...
+                        double own = pieceValue(to) - pieceValue(from)
+                                + (swap ? opponentValue(from) - opponentValue(to) : 0.0);
+                        // ... or the opponent's piece does
+                        double opponent = opponentValue(to) - opponentValue(from)
+                                + (swap ? pieceValue(from) - pieceValue(to) : 0.0);
+                        swing = Math.max(swing, Math.max(Math.abs(own), Math.abs(opponent)));
+                    }
+                }
+            }
+        }
+        return swing;
+    }
+
+    /**
+     * Score terms of one of the computer's pieces on a square, or exited
+     * for square BOARD_SIZE + 1 (the exited term counts exited pieces)
+     */
+    private double pieceValue(int square) {
+        if (square > BitBoard.BOARD_SIZE) {
+            return exitedWeight;
+        }
+        double safety = square >= 26 ? 2.0 : square >= 16 ? 0.5 : 0.0;
+        double special = 0.0;
+        switch (square) {
+            case 26: special = 4.0; break;
+            case 27: special = -5.0; break;
+            case 28: special = 3.0; break;
+            case 29: special = 4.0; break;
+            case 30: special = 5.0; break;
+        }
+        return square * advancementWeight + safety * safetyWeight + special * specialSquareWeight;
+    }
+
+    /**
+     * Score terms of one of the opponent's pieces on a square, or exited
+     */
+    private double opponentValue(int square) {
+        return square > BitBoard.BOARD_SIZE ? -exitedWeight : -square * advancementWeight;
+    }
+
+    /**
+     * The evaluation recomputed square by square, without any of the
+     * state's incremental data; the reference for the debug check
+     */
+    double scoreFromScratch(GameState state, Player computerPlayer) {
+        if (state.getWinner() != null) {
+            return state.getWinner() == computerPlayer ? WIN_SCORE : -WIN_SCORE;
+        }
+
+        int playerPieces = 0, opponentPieces = 0;
+        double playerSum = 0, opponentSum = 0, safety = 0, special = 0;
+        for (int square = 1; square <= BitBoard.BOARD_SIZE; square++) {
+            Player piece = state.getPieceAt(square);
+            if (piece == null) {
+                continue;
+            }
+            if (piece != computerPlayer) {
+                opponentPieces++;
+                opponentSum += square;
+                continue;
+            }
+            playerPieces++;
+            playerSum += square;
+            if (square >= 26) {
+                safety += 2.0;
+            } else if (square >= 16) {
+                safety += 0.5;
+            }
+            switch (square) {
+                case 26: special += 4.0; break;
+                case 27: special -= 5.0; break;
+                case 28: special += 3.0; break;
+                case 29: special += 4.0; break;
+                case 30: special += 5.0; break;
+            }
+        }
+
+        double score = (opponentPieces - playerPieces) * exitedWeight
+                + (playerSum - opponentSum) * advancementWeight
+                + safety * safetyWeight
+                + special * specialSquareWeight;
+        return Math.max(-HEURISTIC_LIMIT, Math.min(HEURISTIC_LIMIT, score));
+    }
+
+    /**
+     * Weights as "exited:advancement:safety:special", the format read by parse()
+     */
+    @Override
+    public String toString() {
+        return exitedWeight + ":" + advancementWeight + ":" + safetyWeight + ":" + specialSquareWeight;
+    }
+
+    /**
+     * Heuristic with weights given as "exited:advancement:safety:special"
+     */
+    public static Heuristic parse(String weights) {
+        String[] parts = weights.split(":");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Expected exited:advancement:safety:special weights, got " + weights);
+        }
+        return new Heuristic(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                             Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
     }
-   }
+}
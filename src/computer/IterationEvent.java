@@ -0,0 +1,42 @@
+package computer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one iterative-deepening iteration of Expectiminimax,
+ * completed or aborted. Off by default; enable senet.Iteration in the
+ * recording to see where the time of a move went.
+ */
+@Name("senet.Iteration")
+@Label("Search Iteration")
+@Category({"Senet", "Search"})
+@Description("One iterative-deepening iteration")
+@Enabled(false)
+@StackTrace(false)
+final class IterationEvent extends Event {
+    @Label("Depth")
+    int depth;
+
+    @Label("Helper")
+    @Description("Lazy SMP helper index, 0 for the main search")
+    int helper;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Completed")
+    @Description("False if the budget ran out during the iteration")
+    boolean completed;
+
+    @Label("Move")
+    String move;
+
+    @Label("Value")
+    double value;
+}
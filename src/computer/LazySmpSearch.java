@@ -0,0 +1,178 @@
+package computer;
+
+import models.Player;
+import models.GameState;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP: the main thread runs a normal iterative-deepening search while
+ * helper threads search the same root on their own, communicating only
+ * through the shared transposition table. Odd helpers run one iteration
+ * ahead of the main search and each helper starts from a different root
+ * move, so the table fills with subtrees the main search needs next.
+ *
+ * The result is always that of the main search; helpers are stopped as
+ * soon as it finishes and their results are dropped.
+ */
+public class LazySmpSearch implements SearchEngine {
+
+    private final Expectiminimax main;
+    private final List<Expectiminimax> helpers = new ArrayList<>();
+    private final TranspositionTable table;
+    private final ExecutorService executor;
+    private final GameStats stats = new GameStats();
+
+    public LazySmpSearch(Player computerPlayer, boolean verbose, int threads) {
+        this(computerPlayer, verbose, threads, new TranspositionTable());
+    }
+
+    public LazySmpSearch(Player computerPlayer, boolean verbose, int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.table = table;
+        this.main = new Expectiminimax(computerPlayer, verbose, table);
+        for (int i = 1; i < threads; i++) {
+            Expectiminimax helper = new Expectiminimax(computerPlayer, false, table);
+            helper.setHelperIndex(i);
+            helpers.add(helper);
+        }
+        this.executor = helpers.isEmpty() ? null : Executors.newFixedThreadPool(helpers.size(), task -> {
+            Thread thread = new Thread(task, "lazy-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public GameResult search(GameState state, int roll, SearchBudget budget) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        stats.reset();
+        table.newSearch();
+
+        // Helpers have no limits of their own, they run until the main search is done
+        SearchBudget helperBudget = SearchBudget.depth(budget.getMaxDepth());
+        SearchLimits helperLimits = new SearchLimits(helperBudget);
+        List<Future<?>> running = new ArrayList<>();
+        for (Expectiminimax helper : helpers) {
+            GameState helperState = state.clone();
+            running.add(executor.submit(() -> helper.search(helperState, roll, helperBudget, helperLimits)));
+        }
+
+        GameResult result;
+        try {
+            result = main.search(state, roll, budget, new SearchLimits(budget));
+        } finally {
+            helperLimits.abort();
+            awaitHelpers(running);
+        }
+
+        stats.merge(main.getStats());
+        for (Expectiminimax helper : helpers) {
+            stats.merge(helper.getStats());
+        }
+        stats.endSearch();
+        SearchTelemetry.publish(stats);
+        event.record("lazy-smp", state, roll, result, stats);
+        return result;
+    }
+
+    private static void awaitHelpers(List<Future<?>> running) {
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Helper search failed", e.getCause());
+            }
+        }
+    }
+
+    public void setHeuristic(Heuristic heuristic) {
+        main.setHeuristic(heuristic);
+        for (Expectiminimax helper : helpers) {
+            helper.setHeuristic(heuristic);
+        }
+    }
+
+    @Override
+    public void setEndgameTable(EndgameTable endgame) {
+        main.setEndgameTable(endgame);
+        for (Expectiminimax helper : helpers) {
+            helper.setEndgameTable(endgame);
+        }
+    }
+
+    @Override
+    public void setRaceTable(RaceTable race) {
+        main.setRaceTable(race);
+        for (Expectiminimax helper : helpers) {
+            helper.setRaceTable(race);
+        }
+    }
+
+    public void setChanceApproximation(ChanceApproximation approximation) {
+        main.setChanceApproximation(approximation);
+        for (Expectiminimax helper : helpers) {
+            helper.setChanceApproximation(approximation);
+        }
+    }
+
+    public void setFutilityPruning(boolean enabled) {
+        main.setFutilityPruning(enabled);
+        for (Expectiminimax helper : helpers) {
+            helper.setFutilityPruning(enabled);
+        }
+    }
+
+    public void setLateMoveReductions(boolean enabled) {
+        main.setLateMoveReductions(enabled);
+        for (Expectiminimax helper : helpers) {
+            helper.setLateMoveReductions(enabled);
+        }
+    }
+
+    public void setStar2Enabled(boolean enabled) {
+        main.setStar2Enabled(enabled);
+        for (Expectiminimax helper : helpers) {
+            helper.setStar2Enabled(enabled);
+        }
+    }
+
+    @Override
+    public void stop() {
+        main.stop();
+    }
+
+    /**
+     * Only the main search reports; helpers run at other depths
+     */
+    @Override
+    public void setSearchListener(SearchListener listener) {
+        main.setSearchListener(listener);
+    }
+
+    public int getThreads() {
+        return helpers.size() + 1;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Statistics of the last search, summed over the main search and all helpers
+     */
+    @Override
+    public GameStats getStats() {
+        return stats;
+    }
+}
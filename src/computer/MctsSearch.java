@@ -0,0 +1,582 @@
+package computer;
+
+import game.GameRules;
+import game.SticksManager;
+import models.BitBoard;
+import models.GameState;
+import models.Move;
+import models.Player;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo Tree Search with explicit chance nodes, an anytime
+ * alternative to Expectiminimax: it can be stopped after any number of
+ * playouts and has no depth horizon.
+ *
+ * The tree alternates decision nodes (a position and a roll; the side to
+ * move picks a move with UCT) and chance nodes (the position after a move,
+ * before the next roll). A chance node doesn't sample its roll: it picks
+ * the roll whose share of the node's visits is furthest below its
+ * probability, so the visits follow SticksManager's distribution exactly
+ * and a chance node's value is the probability-weighted value of its rolls.
+ *
+ * New chance nodes are valued by a playout to the end of the game: rolls
+ * are sampled, and the moves picked at random or, with the TACTICAL
+ * policy, bearing off whenever possible. (Preferring swaps too makes the
+ * playouts three times longer: they keep sending pieces back.) Playouts
+ * run in place on a per-thread state and allocate nothing. Positions covered by an endgame or race
+ * table are valued from the table instead.
+ *
+ * Threads share one tree. A thread descending through a node adds a
+ * virtual loss to it, so the other threads spread out over other moves
+ * until its playout result is backed up. Visits and wins of a node are
+ * separate longs, each updated with an atomic add; a reader may see one
+ * add before the other, which only nudges the win rate of a busy node.
+ *
+ * The tree is kept between turns: the next search starts from the node of
+ * its position and roll if the previous tree has it.
+ *
+ * Budgets: the node limit counts playouts, the time limit works as usual.
+ * A budget with only a depth runs DEFAULT_PLAYOUTS playouts.
+ */
+public class MctsSearch implements SearchEngine {
+
+    public enum PlayoutPolicy { RANDOM, TACTICAL }
+
+    public static final long DEFAULT_PLAYOUTS = 10_000;
+    private static final double DEFAULT_EXPLORATION = 1.0;
+    private static final int VIRTUAL_LOSS = 3;
+    private static final int MAX_PLAYOUT_PLIES = 4000;
+
+    // Wins are counted in WIN_UNITS per visit, for the node's owner
+    private static final long WIN_UNITS = 256;
+    private static final VarHandle VISITS;
+    private static final VarHandle WINS;
+
+    static {
+        try {
+            VISITS = MethodHandles.lookup().findVarHandle(Node.class, "visits", long.class);
+            WINS = MethodHandles.lookup().findVarHandle(Node.class, "wins", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final int[] ROLLS = SticksManager.getAllPossibleRolls();
+    private static final double[] ROLL_PROBABILITY = new double[ROLLS.length];
+    private static final double[] ROLL_CUMULATIVE = new double[ROLLS.length];
+
+    static {
+        double cumulative = 0.0;
+        for (int i = 0; i < ROLLS.length; i++) {
+            ROLL_PROBABILITY[i] = SticksManager.getProbability(ROLLS[i]);
+            cumulative += ROLL_PROBABILITY[i];
+            ROLL_CUMULATIVE[i] = cumulative;
+        }
+    }
+
+    /**
+     * Tree node; owner is the player the wins are counted for
+     */
+    private abstract static class Node {
+        final long bits;
+        final Player owner;
+        volatile long visits;
+        volatile long wins;
+
+        Node(long bits, Player owner) {
+            this.bits = bits;
+            this.owner = owner;
+        }
+
+        long visits() {
+            return visits;
+        }
+
+        /**
+         * Win rate for the owner
+         */
+        double winRate() {
+            long w = wins;
+            long v = visits;
+            return v == 0 ? 0.5 : Math.min(1.0, w / (double) (WIN_UNITS * v));
+        }
+    }
+
+    /**
+     * Position and roll; the side to move (the owner) chooses a move
+     */
+    private static final class DecisionNode extends Node {
+        final int roll;
+        volatile ChanceNode[] children;
+
+        DecisionNode(long bits, int roll) {
+            super(bits, BitBoard.sideToMove(bits));
+            this.roll = roll;
+        }
+    }
+
+    /**
+     * Position after a move (or a skipped turn, move = Move.NONE) by the
+     * owner, before the opponent's roll
+     */
+    private static final class ChanceNode extends Node {
+        final int move;
+        final boolean terminal;
+        volatile DecisionNode[] children;
+
+        ChanceNode(long bits, Player owner, int move, boolean terminal) {
+            super(bits, owner);
+            this.move = move;
+            this.terminal = terminal;
+        }
+    }
+
+    private final Player computerPlayer;
+    private final boolean verbose;
+    private final int threads;
+    private final ExecutorService executor;
+    private final GameStats stats = new GameStats();
+    private double exploration = DEFAULT_EXPLORATION;
+    private PlayoutPolicy playoutPolicy = PlayoutPolicy.TACTICAL;
+    private EndgameTable endgame;
+    private RaceTable race;
+    private long seed = System.nanoTime();
+
+    private DecisionNode root;
+    // Stop flag of the running search; each search gets a new one, so a
+    // stop() never carries over to the next search
+    private volatile AtomicBoolean stopFlag = new AtomicBoolean();
+
+    public MctsSearch(Player computerPlayer, boolean verbose, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.computerPlayer = computerPlayer;
+        this.verbose = verbose;
+        this.threads = threads;
+        this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, task -> {
+            Thread thread = new Thread(task, "mcts-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public GameResult search(GameState state, int roll, SearchBudget budget) {
+        AtomicBoolean stopped = new AtomicBoolean();
+        stopFlag = stopped;
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        GameResult result = searchTree(state, roll, budget, stopped);
+        event.record("mcts", state, roll, result, stats);
+        return result;
+    }
+
+    private GameResult searchTree(GameState state, int roll, SearchBudget budget, AtomicBoolean stopped) {
+        stats.reset();
+
+        List<Move> legalMoves = GameRules.getLegalMoves(state, roll);
+        if (legalMoves.isEmpty()) return new GameResult(0.0, null, TurnType.MAX, 0);
+        if (legalMoves.size() == 1) return new GameResult(0.0, legalMoves.get(0), TurnType.MAX, 0);
+
+        DecisionNode reused = findNode(root, state.getBits(), roll, 4);
+        root = reused != null ? reused : new DecisionNode(state.getBits(), roll);
+        long reusedVisits = root.visits();
+        // Expanded up front, so a search stopped before its first playout still has moves to pick from
+        expand(root, new GameState(), new int[BitBoard.PIECES_PER_PLAYER]);
+
+        long maxPlayouts = budget.hasNodeLimit() ? budget.getMaxNodes()
+                : budget.hasTimeLimit() ? Long.MAX_VALUE : DEFAULT_PLAYOUTS;
+        long deadline = budget.hasTimeLimit()
+                ? System.nanoTime() + budget.getTimeLimitMillis() * 1_000_000L : Long.MAX_VALUE;
+        AtomicLong playouts = new AtomicLong();
+        DecisionNode searchRoot = root;
+
+        List<Future<GameStats>> running = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            long workerSeed = seed + i;
+            running.add(executor.submit(() -> runPlayouts(searchRoot, playouts, maxPlayouts, deadline,
+                                                          stopped, workerSeed)));
+        }
+        GameStats mainStats = runPlayouts(searchRoot, playouts, maxPlayouts, deadline, stopped, seed);
+        seed += threads;
+        stats.merge(mainStats);
+        for (Future<GameStats> future : running) {
+            try {
+                stats.merge(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("MCTS worker failed", e.getCause());
+            }
+        }
+        stats.endSearch();
+        SearchTelemetry.publish(stats);
+
+        // The most visited move is the most reliable one
+        ChanceNode best = null;
+        for (ChanceNode child : root.children) {
+            if (best == null || child.visits() > best.visits()) {
+                best = child;
+            }
+        }
+
+        if (verbose) {
+            System.out.println("\n=== MCTS Search ===");
+            System.out.printf("%d playouts (%d reused from the previous turn)%n", playouts.get(), reusedVisits);
+            for (ChanceNode child : root.children) {
+                System.out.printf("  Move: %s → %d visits, win rate %.3f%n",
+                                  Move.of(child.move, root.owner), child.visits(), child.winRate());
+            }
+            stats.printStats();
+        }
+
+        double value = (2.0 * best.winRate() - 1.0) * Heuristic.WIN_SCORE;
+        if (root.owner != computerPlayer) {
+            value = -value;
+        }
+        return new GameResult(value, Move.of(best.move, root.owner), TurnType.MAX, 0);
+    }
+
+    /**
+     * Playouts of one thread until the shared budget is used up
+     */
+    private GameStats runPlayouts(DecisionNode root, AtomicLong playouts, long maxPlayouts,
+                                  long deadline, AtomicBoolean stopped, long seed) {
+        GameStats threadStats = new GameStats();
+        long allocatedBefore = GameStats.threadAllocatedBytes();
+        SplittableRandom random = new SplittableRandom(seed);
+        GameState scratch = new GameState();
+        int[] moves = new int[BitBoard.PIECES_PER_PLAYER];
+        Node[] path = new Node[64];
+
+        while (!stopped.get() && playouts.getAndIncrement() < maxPlayouts) {
+            path = iterate(root, path, scratch, moves, random, threadStats);
+            if (deadline != Long.MAX_VALUE && System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        if (allocatedBefore >= 0) {
+            threadStats.addAllocatedBytes(GameStats.threadAllocatedBytes() - allocatedBefore);
+        }
+        return threadStats;
+    }
+
+    /**
+     * One iteration: descend to a new chance node (adding virtual losses on
+     * the way), value it, and back the result up the path
+     * @return the path buffer, grown if the tree got deeper
+     */
+    private Node[] iterate(DecisionNode root, Node[] path, GameState scratch, int[] moves,
+                           SplittableRandom random, GameStats threadStats) {
+        int length = 0;
+        path[length++] = root;
+        VISITS.getAndAdd(root, (long) VIRTUAL_LOSS);
+
+        Player winner = null;
+        long reward = -1; // for the owner of the last node, when not decided by a winner
+        DecisionNode decision = root;
+        while (true) {
+            threadStats.incrementNode(decision.owner == computerPlayer ? TurnType.MAX : TurnType.MIN);
+            ChanceNode chance = select(expand(decision, scratch, moves));
+            long visitsBefore = (long) VISITS.getAndAdd(chance, (long) VIRTUAL_LOSS);
+            if (length + 2 > path.length) {
+                path = Arrays.copyOf(path, path.length * 2);
+            }
+            path[length++] = chance;
+
+            if (chance.terminal) {
+                winner = chance.owner;
+                break;
+            }
+            if (visitsBefore == 0) {
+                // New leaf: value it and stop descending
+                reward = evaluate(chance, scratch, moves, random, threadStats);
+                break;
+            }
+
+            threadStats.incrementNode(TurnType.CHANCE);
+            decision = selectRoll(expand(chance));
+            VISITS.getAndAdd(decision, (long) VIRTUAL_LOSS);
+            path[length++] = decision;
+        }
+
+        threadStats.updateMaxDepth(length);
+
+        // Back up: replace each virtual loss with the real result
+        Player rewarded = path[length - 1].owner;
+        for (int i = 0; i < length; i++) {
+            Node node = path[i];
+            long wins;
+            if (winner != null) {
+                wins = node.owner == winner ? WIN_UNITS : 0;
+            } else {
+                wins = node.owner == rewarded ? reward : WIN_UNITS - reward;
+            }
+            WINS.getAndAdd(node, wins);
+            VISITS.getAndAdd(node, (long) (1 - VIRTUAL_LOSS));
+        }
+        return path;
+    }
+
+    /**
+     * Children of a decision node, created on the first visit
+     */
+    private ChanceNode[] expand(DecisionNode node, GameState scratch, int[] moves) {
+        ChanceNode[] children = node.children;
+        if (children != null) {
+            return children;
+        }
+        synchronized (node) {
+            if (node.children != null) {
+                return node.children;
+            }
+            scratch.setBits(node.bits);
+            int count = GameRules.generateMoves(scratch, node.roll, moves);
+            if (count == 0) {
+                scratch.switchPlayer();
+                children = new ChanceNode[]{new ChanceNode(scratch.getBits(), node.owner, Move.NONE, false)};
+            } else {
+                children = new ChanceNode[count];
+                for (int i = 0; i < count; i++) {
+                    GameRules.makeMove(scratch, moves[i]);
+                    boolean terminal = scratch.isGameOver();
+                    if (!terminal) {
+                        scratch.switchPlayer();
+                    }
+                    children[i] = new ChanceNode(scratch.getBits(), node.owner, moves[i], terminal);
+                    GameRules.unmakeMove(scratch);
+                }
+            }
+            node.children = children;
+            return children;
+        }
+    }
+
+    /**
+     * Children of a chance node, one per roll, created on the first visit
+     */
+    private static DecisionNode[] expand(ChanceNode node) {
+        DecisionNode[] children = node.children;
+        if (children != null) {
+            return children;
+        }
+        synchronized (node) {
+            if (node.children == null) {
+                children = new DecisionNode[ROLLS.length];
+                for (int i = 0; i < ROLLS.length; i++) {
+                    children[i] = new DecisionNode(node.bits, ROLLS[i]);
+                }
+                node.children = children;
+            }
+            return node.children;
+        }
+    }
+
+    /**
+     * UCT: the move with the best win rate for the side to move plus an
+     * exploration bonus; unvisited moves first
+     */
+    private ChanceNode select(ChanceNode[] children) {
+        long total = 0;
+        for (ChanceNode child : children) {
+            total += child.visits();
+        }
+        double logTotal = Math.log(Math.max(total, 1));
+        ChanceNode best = children[0];
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (ChanceNode child : children) {
+            long visits = child.visits();
+            if (visits == 0) {
+                return child;
+            }
+            double score = child.winRate() + exploration * Math.sqrt(logTotal / visits);
+            if (score > bestScore) {
+                bestScore = score;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The roll whose visits are furthest below their expected share
+     */
+    private static DecisionNode selectRoll(DecisionNode[] children) {
+        long total = 0;
+        for (DecisionNode child : children) {
+            total += child.visits();
+        }
+        DecisionNode best = children[0];
+        double bestDeficit = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < children.length; i++) {
+            double deficit = ROLL_PROBABILITY[i] * (total + 1) - children[i].visits();
+            if (deficit > bestDeficit) {
+                bestDeficit = deficit;
+                best = children[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Value of a new chance node for its owner, in WIN_UNITS: from a table
+     * if one covers it, otherwise by a playout
+     */
+    private long evaluate(ChanceNode node, GameState scratch, int[] moves, SplittableRandom random,
+                          GameStats threadStats) {
+        scratch.setBits(node.bits);
+        double p;
+        if (endgame != null && endgame.covers(scratch)) {
+            threadStats.incrementEndgameHit();
+            p = endgame.winProbability(scratch);
+        } else if (race != null && race.covers(scratch)) {
+            threadStats.incrementRaceHit();
+            p = race.winProbability(scratch);
+        } else {
+            Player winner = playout(scratch, moves, random);
+            return winner == node.owner ? WIN_UNITS : winner == null ? WIN_UNITS / 2 : 0;
+        }
+        // The table gives the side to move, the owner's opponent
+        return Math.round((1.0 - p) * WIN_UNITS);
+    }
+
+    /**
+     * Play the game out in place from the scratch state, which is left as
+     * it was
+     * @return the winner, or null if the game didn't end within MAX_PLAYOUT_PLIES
+     */
+    private Player playout(GameState state, int[] moves, SplittableRandom random) {
+        int made = 0;
+        Player winner = null;
+        for (int ply = 0; ply < MAX_PLAYOUT_PLIES; ply++) {
+            int count = GameRules.generateMoves(state, sampleRoll(random), moves);
+            if (count == 0) {
+                state.switchPlayer();
+                continue;
+            }
+            GameRules.makeMove(state, moves[pickMove(moves, count, random)]);
+            made++;
+            if (state.isGameOver()) {
+                winner = state.getWinner();
+                break;
+            }
+            state.switchPlayer();
+        }
+        while (made-- > 0) {
+            GameRules.unmakeMove(state);
+        }
+        return winner;
+    }
+
+    private int pickMove(int[] moves, int count, SplittableRandom random) {
+        if (playoutPolicy == PlayoutPolicy.TACTICAL) {
+            for (int i = 0; i < count; i++) {
+                if (Move.isExit(moves[i])) return i;
+            }
+        }
+        return random.nextInt(count);
+    }
+
+    private static int sampleRoll(SplittableRandom random) {
+        double u = random.nextDouble();
+        for (int i = 0; i < ROLLS.length - 1; i++) {
+            if (u < ROLL_CUMULATIVE[i]) {
+                return ROLLS[i];
+            }
+        }
+        return ROLLS[ROLLS.length - 1];
+    }
+
+    /**
+     * Decision node for a position and roll in the first levels of a
+     * previous tree (our move, their roll, their move, our roll is 4)
+     */
+    private static DecisionNode findNode(DecisionNode node, long bits, int roll, int levels) {
+        if (node == null) {
+            return null;
+        }
+        if (node.bits == bits && node.roll == roll) {
+            return node;
+        }
+        ChanceNode[] children = node.children;
+        if (levels <= 0 || children == null) {
+            return null;
+        }
+        for (ChanceNode child : children) {
+            DecisionNode[] rolls = child.children;
+            if (rolls == null) {
+                continue;
+            }
+            for (DecisionNode next : rolls) {
+                DecisionNode found = findNode(next, bits, roll, levels - 2);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    public void setPlayoutPolicy(PlayoutPolicy playoutPolicy) {
+        this.playoutPolicy = playoutPolicy;
+    }
+
+    /**
+     * Seed of the playout random numbers, for reproducible searches
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Forget the tree kept from the previous search
+     */
+    public void clearTree() {
+        root = null;
+    }
+
+    @Override
+    public void setEndgameTable(EndgameTable endgame) {
+        this.endgame = endgame;
+    }
+
+    @Override
+    public void setRaceTable(RaceTable race) {
+        this.race = race;
+    }
+
+    @Override
+    public void stop() {
+        stopFlag.set(true);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Statistics of the last search: tree nodes visited, summed over all threads
+     */
+    @Override
+    public GameStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,90 @@
+package computer;
+
+import models.BitBoard;
+import models.Move;
+
+/**
+ * Move ordering for the MAX/MIN nodes of one Searcher. Moves are searched
+ *   1. the transposition table's best move for the node
+ *   2. exits and swaps
+ *   3. the rest by history score, indexed by (from, to, roll)
+ * with the node's killer moves breaking ties in 2 and 3.
+ *
+ * Killers are kept per depth: within one iteration a depth is a ply. At a
+ * node a move is identified by its from-square, so that is what the table
+ * and the killer slots store.
+ */
+class MoveOrdering {
+    private static final int KILLERS = 2;
+    private static final int SQUARES = BitBoard.BOARD_SIZE + 2; // 0 unused, 31 = off the board
+    private static final int ROLLS = 6;
+
+    private static final long TT_MOVE = 1L << 62;
+    private static final long TACTICAL = 1L << 61;
+    private static final long KILLER = 1L;
+
+    private final long[] history = new long[SQUARES * SQUARES * ROLLS];
+    private final int[][] killers;
+
+    // Per-depth scratch space, a node's children only use smaller depths
+    private final long[][] scores;
+
+    MoveOrdering(int maxDepth) {
+        this.killers = new int[maxDepth + 1][KILLERS];
+        this.scores = new long[maxDepth + 1][BitBoard.PIECES_PER_PLAYER];
+    }
+
+    /**
+     * Sort a node's packed moves in place, best first
+     * @param bestFrom from-square of the table's best move, 0 if none
+     */
+    void order(int[] moves, int count, int depth, int roll, int bestFrom) {
+        long[] score = scores[depth];
+        int[] killer = killers[depth];
+
+        for (int n = 0; n < count; n++) {
+            int move = moves[n];
+            int from = Move.fromOf(move);
+            long s;
+            if (from == bestFrom) {
+                s = TT_MOVE;
+            } else {
+                s = (Move.isExit(move) || Move.isSwap(move)) ? TACTICAL : 0;
+                s += history[historyIndex(move, roll)] << 1;
+                if (from == killer[0] || from == killer[1]) {
+                    s += KILLER;
+                }
+            }
+
+            // Insertion sort, stable so equal moves keep board order
+            int i = n;
+            while (i > 0 && score[i - 1] < s) {
+                moves[i] = moves[i - 1];
+                score[i] = score[i - 1];
+                i--;
+            }
+            moves[i] = move;
+            score[i] = s;
+        }
+    }
+
+    /**
+     * A move caused a cutoff: reward it in the history table (deeper
+     * cutoffs count more) and make it the depth's first killer
+     */
+    void recordCutoff(int move, int depth, int roll) {
+        history[historyIndex(move, roll)] += (long) depth * depth;
+
+        int[] killer = killers[depth];
+        int from = Move.fromOf(move);
+        if (killer[0] != from) {
+            killer[1] = killer[0];
+            killer[0] = from;
+        }
+    }
+
+    private static int historyIndex(int move, int roll) {
+        int to = Math.min(Move.toOf(move), SQUARES - 1);
+        return (Move.fromOf(move) * SQUARES + to) * ROLLS + roll;
+    }
+}
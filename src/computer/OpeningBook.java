@@ -0,0 +1,125 @@
+package computer;
+
+import game.GameRules;
+import models.BitBoard;
+import models.GameState;
+import models.Move;
+import models.Zobrist;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Best moves for the opening, computed offline by tools.OpeningBookBuilder
+ * with a deeper search than can be afforded during a game. Entries are
+ * keyed by the position hash combined with the roll (the same key the
+ * transposition table uses for MAX/MIN nodes) and kept sorted, so a
+ * lookup is a binary search.
+ *
+ * File layout (big-endian):
+ *   long   MAGIC
+ *   int    VERSION
+ *   long   signature of the rules it was built for (RuleTable.signature())
+ *   int    number of entries
+ *   entries sorted by key: long key, char packed move (see Move)
+ */
+public class OpeningBook {
+    public static final long MAGIC = 0x53656E6574424F4BL; // "SenetBOK"
+    public static final int VERSION = 1;
+
+    private final long[] keys;
+    private final char[] moves;
+
+    private OpeningBook(long[] keys, char[] moves) {
+        this.keys = keys;
+        this.moves = moves;
+    }
+
+    /**
+     * Book key of a position with a roll
+     */
+    public static long key(GameState state, int roll) {
+        return state.getHash() ^ Zobrist.rollKey(roll);
+    }
+
+    /**
+     * Read a book file. It must have been built for the rules GameRules
+     * currently plays by.
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported opening book version " + version + ": " + path);
+            }
+            if (in.readLong() != GameRules.getRuleTable().signature()) {
+                throw new IOException("Opening book " + path + " was built for different rules");
+            }
+            int count = in.readInt();
+            long[] keys = new long[count];
+            char[] moves = new char[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = in.readLong();
+                moves[i] = in.readChar();
+                if (i > 0 && keys[i] <= keys[i - 1]) {
+                    throw new IOException("Opening book entries out of order: " + path);
+                }
+            }
+            return new OpeningBook(keys, moves);
+        }
+    }
+
+    /**
+     * Write a book; keys and packed moves are parallel arrays in any order
+     */
+    public static void write(Path path, long rulesSignature, long[] keys, int[] moves) throws IOException {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(rulesSignature);
+            out.writeInt(keys.length);
+            for (int i : order) {
+                out.writeLong(keys[i]);
+                out.writeChar(moves[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Book move for the player to move with the given roll, or null if
+     * the position isn't in the book. The move is checked against the legal
+     * moves, so a hash collision can't produce an illegal move.
+     */
+    public Move lookup(GameState state, int roll) {
+        int i = Arrays.binarySearch(keys, key(state, roll));
+        if (i < 0) {
+            return null;
+        }
+        int[] legal = new int[BitBoard.PIECES_PER_PLAYER];
+        int count = GameRules.generateMoves(state, roll, legal);
+        for (int j = 0; j < count; j++) {
+            if (legal[j] == moves[i]) {
+                return Move.of(legal[j], state.getCurrentPlayer());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package computer;
+
+import models.GameState;
+import java.util.Arrays;
+
+/**
+ * Searches on the opponent's time. Given the position the engine will
+ * face next, a background thread searches it for each of the five rolls,
+ * most likely roll first, and keeps the results. When the real roll is
+ * known, take() stops the thread and hands back the finished search for
+ * that roll; if it didn't finish, the engine's transposition table is at
+ * least warm for the search that follows.
+ *
+ * The engine must not be used by anyone else between start() and take()
+ * or stop().
+ */
+public class Ponderer {
+    private final SearchEngine engine;
+    private final SearchBudget budget;
+
+    private Thread thread;
+    private long positionBits;
+    private volatile boolean cancelled;
+    // Indexed by roll; written by the ponder thread, read after it has been joined
+    private final GameResult[] results = new GameResult[6];
+    // Why the last ponder thread gave up, if it failed
+    private volatile RuntimeException failure;
+
+    private int hits;
+    private int misses;
+
+    public Ponderer(SearchEngine engine, SearchBudget budget) {
+        this.engine = engine;
+        this.budget = budget;
+    }
+
+    /**
+     * Ponder the position with the engine's side to move. If that position
+     * is already being pondered (the expected move was played) the search
+     * carries on, otherwise it starts over.
+     */
+    public void start(GameState position) {
+        if (thread != null && positionBits == position.getBits()) {
+            return;
+        }
+        stop();
+        positionBits = position.getBits();
+        cancelled = false;
+        failure = null;
+        GameState ponderState = position.clone();
+        thread = new Thread(() -> ponder(ponderState), "ponder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void ponder(GameState position) {
+        try {
+            for (int roll : Searcher.ROLL_ORDER) {
+                if (cancelled) {
+                    return;
+                }
+                GameResult result = engine.search(position, roll, budget);
+                // A search cut short by stop() is not a result
+                if (cancelled) {
+                    return;
+                }
+                results[roll] = result;
+            }
+        } catch (RuntimeException e) {
+            // Kept for the caller to report; printing here would land in the middle of the move prompt
+            failure = e;
+        }
+    }
+
+    /**
+     * Stop pondering and return the search of this position and roll, or
+     * null if it wasn't pondered or didn't finish in time
+     */
+    public GameResult take(GameState position, int roll) {
+        if (thread == null) {
+            return null;
+        }
+        boolean pondered = positionBits == position.getBits();
+        halt();
+        GameResult result = pondered ? results[roll] : null;
+        if (pondered) {
+            if (result != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        clear();
+        return result;
+    }
+
+    /**
+     * Stop pondering and drop its results
+     */
+    public void stop() {
+        if (thread != null) {
+            halt();
+            clear();
+        }
+    }
+
+    private void halt() {
+        cancelled = true;
+        // A search that starts just after stop() would miss it, so repeat until the thread is gone
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            engine.stop();
+            try {
+                thread.join(10);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void clear() {
+        thread = null;
+        positionBits = 0;
+        Arrays.fill(results, null);
+    }
+
+    /**
+     * The exception a ponder search failed with, or null. Results found
+     * before the failure are still handed out by take().
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Moves answered from a finished ponder search
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Moves whose position was pondered but whose roll wasn't finished
+     */
+    public int getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,180 @@
+package computer;
+
+import game.GameRules;
+import models.BitBoard;
+import models.GameState;
+import models.Player;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Race positions: every piece of one side is past every piece of the
+ * other. From there the game is treated as two independent one-player
+ * races, one per side. For each configuration of up to maxPieces pieces
+ * the table holds the distribution of the number of turns that side still
+ * needs to bear off all its pieces, playing to minimize the expected number
+ * of turns (computed by tools.RaceTableGenerator). The side to move wins
+ * if it needs no more turns than the opponent, so its win probability is
+ * a convolution of the two distributions.
+ *
+ * In Senet both sides move the same way, so the side behind can still
+ * land on the pieces in front and swap, and failed exits and the Water
+ * send pieces back to the House of Rebirth. The race value ignores those
+ * interactions; it is an estimate, not an exact value like EndgameTable's.
+ *
+ * File layout (big-endian):
+ *   long    MAGIC
+ *   int     VERSION
+ *   int     maximum pieces
+ *   long    signature of the rules it was computed for (RuleTable.signature())
+ *   int     number of configurations
+ *   int     TURNS
+ *   float[] per configuration (see index()), P(finished within t turns) for t = 0 .. TURNS-1
+ */
+public class RaceTable {
+    public static final long MAGIC = 0x53656E6574524345L; // "SenetRCE"
+    public static final int VERSION = 1;
+    public static final int MAX_PIECES = 4;
+    public static final int TURNS = 256;
+    static final int HEADER_BYTES = 32;
+
+    private final int maxPieces;
+    private final MappedByteBuffer cdf;
+
+    private RaceTable(int maxPieces, MappedByteBuffer cdf) {
+        this.maxPieces = maxPieces;
+        this.cdf = cdf;
+    }
+
+    /**
+     * Number of configurations with 1 to maxPieces pieces
+     */
+    public static int configurations(int maxPieces) {
+        int count = 0;
+        for (int k = 1; k <= maxPieces; k++) {
+            count += EndgameIndex.masks(k);
+        }
+        return count;
+    }
+
+    /**
+     * Number of a configuration of 1 to maxPieces pieces: configurations
+     * are ordered by piece count, then by colex rank
+     */
+    public static int index(int mask) {
+        return configurations(Integer.bitCount(mask) - 1) + EndgameIndex.colexRank(mask);
+    }
+
+    /**
+     * Map a table file. It must have been computed for the rules GameRules
+     * currently plays by.
+     */
+    public static RaceTable open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a race table: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getLong(0) != MAGIC) {
+                throw new IOException("Not a race table: " + path);
+            }
+            if (buffer.getInt(8) != VERSION) {
+                throw new IOException("Unsupported race table version " + buffer.getInt(8) + ": " + path);
+            }
+            int maxPieces = buffer.getInt(12);
+            if (maxPieces < 1 || maxPieces > MAX_PIECES) {
+                throw new IOException("Invalid piece count " + maxPieces + " in " + path);
+            }
+            if (buffer.getLong(16) != GameRules.getRuleTable().signature()) {
+                throw new IOException("Race table " + path + " was computed for different rules");
+            }
+            int count = configurations(maxPieces);
+            if (buffer.getInt(24) != count || buffer.getInt(28) != TURNS
+                    || channel.size() != HEADER_BYTES + 4L * TURNS * count) {
+                throw new IOException("Truncated race table: " + path);
+            }
+            return new RaceTable(maxPieces, buffer);
+        }
+    }
+
+    /**
+     * Write a table; cdf[index(mask)][t] is P(finished within t turns)
+     */
+    public static void write(Path path, int maxPieces, long rulesSignature, float[][] cdf) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putLong(MAGIC).putInt(VERSION).putInt(maxPieces).putLong(rulesSignature)
+              .putInt(cdf.length).putInt(TURNS);
+
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(header.array());
+            ByteBuffer row = ByteBuffer.allocate(4 * TURNS);
+            for (float[] distribution : cdf) {
+                row.clear();
+                for (int t = 0; t < TURNS; t++) {
+                    row.putFloat(distribution[t]);
+                }
+                out.write(row.array());
+            }
+        }
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Whether the position is a race the table has both sides of
+     */
+    public boolean covers(GameState state) {
+        if (state.isGameOver()) {
+            return false;
+        }
+        int white = state.getOccupancy(Player.WHITE);
+        int black = state.getOccupancy(Player.BLACK);
+        if (Integer.bitCount(white) > maxPieces || Integer.bitCount(black) > maxPieces) {
+            return false;
+        }
+        return BitBoard.lowestSquare(white) > BitBoard.highestSquare(black)
+                || BitBoard.lowestSquare(black) > BitBoard.highestSquare(white);
+    }
+
+    /**
+     * Estimated probability that the side to move wins a covered race:
+     * P(T_mover <= T_opponent), where T is the number of turns a side needs
+     */
+    public double winProbability(GameState state) {
+        Player mover = state.getCurrentPlayer();
+        int moverRow = HEADER_BYTES + 4 * TURNS * index(state.getOccupancy(mover));
+        int opponentRow = HEADER_BYTES + 4 * TURNS * index(state.getOccupancy(mover.opponent()));
+
+        double win = 0.0;
+        double moverBefore = 0.0; // P(T_mover <= t - 1)
+        for (int t = 1; t < TURNS; t++) {
+            double moverNow = cdf.getFloat(moverRow + 4 * t);
+            double opponentNotYet = 1.0 - cdf.getFloat(opponentRow + 4 * (t - 1)); // P(T_opponent >= t)
+            win += (moverNow - moverBefore) * opponentNotYet;
+            moverBefore = moverNow;
+        }
+        // Both still running after the last turn in the table: call it even
+        win += 0.5 * (1.0 - moverBefore) * (1.0 - cdf.getFloat(opponentRow + 4 * (TURNS - 1)));
+        return win;
+    }
+
+    /**
+     * Estimated game result of a covered race on the evaluation scale, from
+     * the given player's perspective (see EndgameTable.score())
+     */
+    public double score(GameState state, Player player) {
+        double p = winProbability(state);
+        if (state.getCurrentPlayer() != player) {
+            p = 1.0 - p;
+        }
+        return (2.0 * p - 1.0) * Heuristic.HEURISTIC_LIMIT;
+    }
+}
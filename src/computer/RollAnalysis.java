@@ -0,0 +1,62 @@
+package computer;
+
+import models.Move;
+
+/**
+ * Result of Expectiminimax.analyzeAllRolls(): the best move and value of
+ * a position for each of the five rolls, and its expected value before
+ * the sticks are thrown
+ */
+public class RollAnalysis {
+    private final GameResult[] results;
+    private final double expectedValue;
+    private final int depth;
+
+    /**
+     * @param results indexed by roll (1-5)
+     */
+    public RollAnalysis(GameResult[] results, double expectedValue, int depth) {
+        this.results = results.clone();
+        this.expectedValue = expectedValue;
+        this.depth = depth;
+    }
+
+    /**
+     * Search result for a roll; its best move is null if the roll has no legal move
+     */
+    public GameResult getResult(int roll) {
+        return results[roll];
+    }
+
+    public Move getBestMove(int roll) {
+        return results[roll].getBestMove();
+    }
+
+    public double getValue(int roll) {
+        return results[roll].getValue();
+    }
+
+    /**
+     * Value of the position averaged over the roll probabilities
+     */
+    public double getExpectedValue() {
+        return expectedValue;
+    }
+
+    /** Depth of the last iteration completed for all rolls */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Expected value %.3f (depth %d)", expectedValue, depth));
+        for (int roll = 1; roll < results.length; roll++) {
+            Move move = results[roll].getBestMove();
+            sb.append(String.format("%n  Roll %d: %s (value: %.3f)", roll,
+                                    move == null ? "no legal move" : move, results[roll].getValue()));
+        }
+        return sb.toString();
+    }
+}
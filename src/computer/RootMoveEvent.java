@@ -0,0 +1,52 @@
+package computer;
+
+import models.Move;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for the subtree of one root move in one iteration. Off by
+ * default, and when enabled only subtrees slower than the threshold are
+ * recorded, so a recording shows the moves that blew up the search
+ * without one event per root move.
+ */
+@Name("senet.RootMove")
+@Label("Slow Root Move")
+@Category({"Senet", "Search"})
+@Description("Search of one root move's subtree that exceeded the threshold")
+@Enabled(false)
+@Threshold("10 ms")
+@StackTrace(false)
+final class RootMoveEvent extends Event {
+    @Label("Depth")
+    int depth;
+
+    @Label("Move")
+    String move;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Value")
+    double value;
+
+    /**
+     * End the event and commit it if the recording wants it
+     */
+    void record(int depth, Move move, long nodes, double value) {
+        end();
+        if (shouldCommit()) {
+            this.depth = depth;
+            this.move = String.valueOf(move);
+            this.nodes = nodes;
+            this.value = value;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package computer;
+
+/**
+ * Limits for one iterative-deepening search: maximum depth, wall-clock time
+ * and nodes searched. Whichever limit is hit first ends the search; a limit
+ * of 0 means "no limit" for time and nodes.
+ */
+public class SearchBudget {
+    public static final int MAX_DEPTH = 64;
+
+    private final int maxDepth;
+    private final long timeLimitMillis;
+    private final long maxNodes;
+
+    public SearchBudget(int maxDepth, long timeLimitMillis, long maxNodes) {
+        if (maxDepth < 1 || maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+        }
+        if (timeLimitMillis < 0 || maxNodes < 0) {
+            throw new IllegalArgumentException("Time and node limits must not be negative");
+        }
+        this.maxDepth = maxDepth;
+        this.timeLimitMillis = timeLimitMillis;
+        this.maxNodes = maxNodes;
+    }
+
+    public static SearchBudget depth(int maxDepth) {
+        return new SearchBudget(maxDepth, 0, 0);
+    }
+
+    public static SearchBudget time(long timeLimitMillis) {
+        return new SearchBudget(MAX_DEPTH, timeLimitMillis, 0);
+    }
+
+    public static SearchBudget nodes(long maxNodes) {
+        return new SearchBudget(MAX_DEPTH, 0, maxNodes);
+    }
+
+    public SearchBudget withMaxDepth(int depth) {
+        return new SearchBudget(depth, timeLimitMillis, maxNodes);
+    }
+
+    public SearchBudget withTimeLimit(long millis) {
+        return new SearchBudget(maxDepth, millis, maxNodes);
+    }
+
+    public SearchBudget withMaxNodes(long nodes) {
+        return new SearchBudget(maxDepth, timeLimitMillis, nodes);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    public boolean hasTimeLimit() {
+        return timeLimitMillis > 0;
+    }
+
+    public boolean hasNodeLimit() {
+        return maxNodes > 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("depth ").append(maxDepth);
+        if (hasTimeLimit()) sb.append(", ").append(timeLimitMillis).append(" ms");
+        if (hasNodeLimit()) sb.append(", ").append(maxNodes).append(" nodes");
+        return sb.toString();
+    }
+}
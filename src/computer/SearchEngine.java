@@ -0,0 +1,51 @@
+package computer;
+
+import models.GameState;
+import models.Move;
+
+/**
+ * A move-search algorithm the game can play with. Engines keep state
+ * between searches (transposition table, thread pools), so one instance is
+ * meant to be reused for a whole game.
+ */
+public interface SearchEngine {
+
+    /**
+     * Search the position for the player to move with the given roll
+     */
+    GameResult search(GameState state, int roll, SearchBudget budget);
+
+    /**
+     * Find best move for given state and roll within a search budget
+     */
+    default Move getBestMove(GameState state, int roll, SearchBudget budget) {
+        return search(state, roll, budget).getBestMove();
+    }
+
+    /**
+     * Use the exact values of a solved endgame table (null = none)
+     */
+    void setEndgameTable(EndgameTable endgame);
+
+    /**
+     * Value race positions with a race table instead of searching them (null = none)
+     */
+    void setRaceTable(RaceTable race);
+
+    /**
+     * Report the progress of searches to a listener (null = none).
+     * Engines without iterations report nothing.
+     */
+    default void setSearchListener(SearchListener listener) {
+    }
+
+    /**
+     * Ask a running search to finish as soon as possible
+     */
+    void stop();
+
+    /**
+     * Statistics of the last search
+     */
+    GameStats getStats();
+}
@@ -0,0 +1,74 @@
+package computer;
+
+import game.GameRules;
+import models.GameState;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event for one engine search, i.e. one computer move.
+ * Enabled in the default and profile recordings, so
+ *
+ *   jcmd <pid> JFR.start duration=60s filename=senet.jfr
+ *
+ * records every move with its duration. When no recording is running the
+ * event is disabled and costs one check per search.
+ *
+ * IterationEvent and RootMoveEvent break a slow move down further; both
+ * are off unless the recording enables them.
+ */
+@Name("senet.Search")
+@Label("Search")
+@Category({"Senet", "Search"})
+@Description("One engine search for a position and roll")
+@StackTrace(false)
+final class SearchEvent extends Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Position Hash")
+    long positionHash;
+
+    @Label("Roll")
+    int roll;
+
+    @Label("Legal Moves")
+    @Description("Moves generated at the root")
+    int legalMoves;
+
+    @Label("Depth")
+    @Description("Depth of the last completed iteration, 0 for MCTS")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Move")
+    String move;
+
+    @Label("Value")
+    double value;
+
+    /**
+     * End the event and commit it if the recording wants it. The state
+     * must be the one searched, unchanged.
+     */
+    void record(String engine, GameState state, int roll, GameResult result, GameStats stats) {
+        end();
+        if (shouldCommit()) {
+            this.engine = engine;
+            this.positionHash = state.getHash();
+            this.roll = roll;
+            this.legalMoves = GameRules.getLegalMoves(state, roll).size();
+            this.depth = result.getDepth();
+            this.nodes = stats.getNodesExplored();
+            this.move = String.valueOf(result.getBestMove());
+            this.value = result.getValue();
+            commit();
+        }
+    }
+}
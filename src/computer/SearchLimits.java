@@ -0,0 +1,67 @@
+package computer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget bookkeeping of one running search, shared by all its threads.
+ * Searchers report every CHECK_INTERVAL nodes; once the time or node limit
+ * is exceeded the search is marked aborted and every thread unwinds.
+ */
+class SearchLimits {
+    static final int CHECK_INTERVAL = 1024;
+
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final long maxNodes;
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean active;
+    private volatile boolean aborted;
+
+    SearchLimits(SearchBudget budget) {
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = budget.hasTimeLimit()
+                ? startNanos + budget.getTimeLimitMillis() * 1_000_000L : Long.MAX_VALUE;
+        this.maxNodes = budget.hasNodeLimit() ? budget.getMaxNodes() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Limits are only enforced while active (the first iteration always completes)
+     */
+    void setActive(boolean active) {
+        this.active = active;
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Account for CHECK_INTERVAL more nodes and check the limits
+     * @return true if the search must stop
+     */
+    boolean checkpoint() {
+        long searched = nodes.addAndGet(CHECK_INTERVAL);
+        if (active && (searched >= maxNodes || System.nanoTime() >= deadlineNanos)) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    /**
+     * A new iteration costs several times the previous ones; don't start it
+     * when more than half of the time is already used
+     */
+    boolean worthStartingIteration() {
+        if (aborted) {
+            return false;
+        }
+        if (deadlineNanos == Long.MAX_VALUE) {
+            return true;
+        }
+        return System.nanoTime() - startNanos < (deadlineNanos - startNanos) / 2;
+    }
+}
@@ -0,0 +1,15 @@
+package computer;
+
+/**
+ * Progress of a running search, e.g. for the info lines of
+ * game.EngineProtocol. Called on the searching thread.
+ */
+public interface SearchListener {
+
+    /**
+     * An iterative-deepening iteration completed
+     * @param result best move and value at that depth
+     * @param nodes  nodes searched so far
+     */
+    void iterationCompleted(GameResult result, long nodes);
+}
@@ -0,0 +1,125 @@
+package computer;
+
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Search statistics published as a platform MBean, so a running game can
+ * be watched with jconsole or any JMX scraper without --verbose. Engines
+ * call publish() with their GameStats at the end of every search; the
+ * MBean keeps a copy of the last one and the totals over all of them.
+ *
+ * Registered as OBJECT_NAME when the class is first used.
+ */
+public final class SearchTelemetry implements SearchTelemetryMXBean {
+    public static final String OBJECT_NAME = "senet:type=SearchTelemetry";
+
+    private static final SearchTelemetry INSTANCE = register(new SearchTelemetry());
+
+    private final GameStats totals = new GameStats();
+    private volatile GameStats last = new GameStats();
+
+    private SearchTelemetry() {
+    }
+
+    private static SearchTelemetry register(SearchTelemetry telemetry) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(telemetry, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Another class loader got there first; this copy still counts
+        } catch (JMException e) {
+            System.err.println("Search telemetry not available over JMX: " + e.getMessage());
+        }
+        return telemetry;
+    }
+
+    public static SearchTelemetry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record the statistics of a finished search
+     */
+    public static void publish(GameStats stats) {
+        GameStats snapshot = stats.snapshot();
+        INSTANCE.last = snapshot;
+        INSTANCE.totals.merge(snapshot);
+    }
+
+    @Override
+    public long getSearches() {
+        return totals.getSearches();
+    }
+
+    @Override
+    public GameStats getLastSearch() {
+        return last;
+    }
+
+    @Override
+    public GameStats getTotals() {
+        return totals.snapshot();
+    }
+
+    @Override
+    public long getLastNodes() {
+        return last.getNodesExplored();
+    }
+
+    @Override
+    public long getLastTimeNanos() {
+        return last.getTimeNanos();
+    }
+
+    @Override
+    public double getLastNodesPerSecond() {
+        return last.getNodesPerSecond();
+    }
+
+    @Override
+    public double getLastEffectiveBranchingFactor() {
+        return last.getEffectiveBranchingFactor();
+    }
+
+    @Override
+    public double getLastTableHitRate() {
+        return last.getTableHitRate();
+    }
+
+    @Override
+    public long getLastBytesAllocated() {
+        return last.getBytesAllocated();
+    }
+
+    @Override
+    public long getTotalNodes() {
+        return totals.getNodesExplored();
+    }
+
+    @Override
+    public long getTotalTimeNanos() {
+        return totals.getTimeNanos();
+    }
+
+    @Override
+    public double getTotalNodesPerSecond() {
+        return totals.getNodesPerSecond();
+    }
+
+    @Override
+    public double getTotalTableHitRate() {
+        return totals.getTableHitRate();
+    }
+
+    @Override
+    public long getTotalBytesAllocated() {
+        return totals.getBytesAllocated();
+    }
+
+    @Override
+    public void reset() {
+        totals.reset();
+    }
+}
@@ -0,0 +1,43 @@
+package computer;
+
+/**
+ * JMX view of the search statistics (see SearchTelemetry). The Last
+ * attributes describe the most recent search of any engine in this JVM,
+ * the Total ones all searches since start-up or the last reset().
+ * LastSearch and Totals hold every GameStats counter.
+ */
+public interface SearchTelemetryMXBean {
+
+    long getSearches();
+
+    GameStats getLastSearch();
+
+    GameStats getTotals();
+
+    long getLastNodes();
+
+    long getLastTimeNanos();
+
+    double getLastNodesPerSecond();
+
+    double getLastEffectiveBranchingFactor();
+
+    double getLastTableHitRate();
+
+    long getLastBytesAllocated();
+
+    long getTotalNodes();
+
+    long getTotalTimeNanos();
+
+    double getTotalNodesPerSecond();
+
+    double getTotalTableHitRate();
+
+    long getTotalBytesAllocated();
+
+    /**
+     * Clear the totals
+     */
+    void reset();
+}
@@ -0,0 +1,688 @@
+package computer;
+
+import models.BitBoard;
+import models.Player;
+import models.GameState;
+import models.Move;
+import models.Zobrist;
+import game.GameRules;
+import game.SticksManager;
+import java.util.Arrays;
+
+/**
+ * The recursive part of the expectiminimax search. A Searcher belongs to
+ * one thread; parallel searches give every worker its own Searcher (with
+ * its own statistics and scratch space) over a shared transposition table
+ * and shared search limits.
+ */
+class Searcher {
+
+    // Futility pruning at MAX/MIN nodes this close to the horizon
+    static final int FUTILITY_DEPTH = 3;
+
+    // Late-move reductions: quiet moves from this index on, at nodes at
+    // least this deep, are searched one ply shallower first
+    static final int LMR_FIRST_MOVE = 2;
+    static final int LMR_MIN_DEPTH = 3;
+
+    // Rolls in order of decreasing probability, with the probability and the
+    // total probability of the rolls after each one
+    static final int[] ROLL_ORDER = orderRollsByProbability();
+    static final double[] ROLL_PROBABILITY = new double[ROLL_ORDER.length];
+    private static final double[] ROLL_TAIL = new double[ROLL_ORDER.length];
+    private static final double[] ROLL_CUMULATIVE = new double[ROLL_ORDER.length];
+
+    static {
+        for (int i = ROLL_ORDER.length - 1; i >= 0; i--) {
+            ROLL_PROBABILITY[i] = SticksManager.getProbability(ROLL_ORDER[i]);
+            ROLL_TAIL[i] = i + 1 < ROLL_ORDER.length ? ROLL_TAIL[i + 1] + ROLL_PROBABILITY[i + 1] : 0.0;
+        }
+        for (int i = 0; i < ROLL_ORDER.length; i++) {
+            ROLL_CUMULATIVE[i] = (i > 0 ? ROLL_CUMULATIVE[i - 1] : 0.0) + ROLL_PROBABILITY[i];
+        }
+    }
+
+    private final Player computerPlayer;
+    private final Heuristic heuristic;
+    private final EndgameTable endgame; // null = none
+    private final RaceTable race; // null = none
+    private final TranspositionTable table;
+    private final SearchLimits limits;
+    private final GameStats stats = new GameStats();
+    private final boolean star2Enabled;
+    private final boolean futilityEnabled;
+    private final boolean reductionsEnabled;
+    private final double moveSwing;
+    private final ChanceApproximation approximation;
+    private final MoveOrdering ordering;
+    private int nodeCounter;
+
+    // Depth of the current root move, and the path probability of the
+    // chance node at each depth (set by its parent chance node)
+    private int rootDepth;
+    private final double[] pathProbability;
+
+    // Per-depth scratch space for the generated moves and the chance node
+    // roll bounds, so the search allocates nothing per node
+    private final int[][] moveBuffers;
+    private final double[][] lowerBounds;
+    private final double[][] upperBounds;
+    private final int[][] sampleCounts;
+
+    Searcher(Player computerPlayer, Heuristic heuristic, EndgameTable endgame, RaceTable race,
+             TranspositionTable table, SearchLimits limits, boolean star2Enabled,
+             boolean futilityEnabled, boolean reductionsEnabled,
+             ChanceApproximation approximation, int maxDepth) {
+        this.computerPlayer = computerPlayer;
+        this.heuristic = heuristic;
+        this.endgame = endgame;
+        this.race = race;
+        this.table = table;
+        this.limits = limits;
+        this.star2Enabled = star2Enabled;
+        // Table values below the horizon aren't within a swing of the
+        // evaluation, so futility pruning needs the evaluation all the way down
+        this.futilityEnabled = futilityEnabled && endgame == null && race == null;
+        this.reductionsEnabled = reductionsEnabled;
+        this.moveSwing = this.futilityEnabled ? heuristic.maxMoveSwing(GameRules.getRuleTable()) : 0.0;
+        this.approximation = approximation;
+        this.ordering = new MoveOrdering(maxDepth);
+        this.moveBuffers = new int[maxDepth + 1][BitBoard.PIECES_PER_PLAYER];
+        this.lowerBounds = new double[maxDepth + 1][ROLL_ORDER.length];
+        this.upperBounds = new double[maxDepth + 1][ROLL_ORDER.length];
+        this.sampleCounts = new int[maxDepth + 1][ROLL_ORDER.length];
+        this.pathProbability = new double[maxDepth + 1];
+    }
+
+    GameStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Value of playing a root move: the opponent's chance node after it
+     */
+    double searchMove(GameState state, Move move, int depth, double alpha, double beta) {
+        rootDepth = depth;
+        pathProbability[depth - 1] = 1.0;
+        GameRules.makeMove(state, move);
+        double value;
+        if (GameRules.isTerminalState(state)) {
+            value = heuristic.score(state, computerPlayer);
+        } else {
+            state.switchPlayer();
+            value = chanceNode(state, depth - 1, alpha, beta, false);
+        }
+        GameRules.unmakeMove(state);
+        return value;
+    }
+
+    /**
+     * Value of a root roll without legal moves: the turn passes to the
+     * opponent's chance node
+     */
+    double searchPass(GameState state, int depth) {
+        rootDepth = depth;
+        pathProbability[depth - 1] = 1.0;
+        state.switchPlayer();
+        double value = chanceNode(state, depth - 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+        state.switchPlayer();
+        return value;
+    }
+
+    /**
+     * CHANCE node - calculate expected value over all dice rolls
+     *
+     * Uses Ballard's Star1 and Star2 pruning. Evaluations are bounded by
+     * [Heuristic.MIN_SCORE, Heuristic.MAX_SCORE], so before each roll is
+     * searched the rolls not searched yet can be assumed to take their
+     * worst/best possible value. If even that can't bring the expected value
+     * inside (alpha, beta) the node is cut off. Star2 first probes one move
+     * per roll, which gives a tighter bound for every child than the
+     * evaluation range. Rolls are visited most likely first.
+     */
+    double chanceNode(GameState state, int depth,
+                             double alpha, double beta, boolean isMaxPlayer) {
+        stats.incrementNode(TurnType.CHANCE);
+        stats.updateMaxDepth(depth);
+
+        if (outOfBudget()) {
+            return 0.0;
+        }
+
+        double leaf = leafValue(state, depth);
+        if (!Double.isNaN(leaf)) {
+            return leaf;
+        }
+
+        long key = state.getHash();
+        double cached = probeTable(key, depth, alpha, beta);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+
+        if (approximation.samples(rootDepth - depth)) {
+            return sampledChanceNode(state, depth, key, isMaxPlayer);
+        }
+
+        // Known bounds on each roll's child value
+        double[] lower = lowerBounds[depth];
+        double[] upper = upperBounds[depth];
+        Arrays.fill(lower, Heuristic.MIN_SCORE);
+        Arrays.fill(upper, Heuristic.MAX_SCORE);
+
+        // Star2 probing: the first move of a MAX child is a lower bound on
+        // it, the first move of a MIN child an upper bound
+        if (star2Enabled) {
+            double probed = 0.0;
+            for (int i = 0; i < ROLL_ORDER.length; i++) {
+                double probability = ROLL_PROBABILITY[i];
+                double rest = ROLL_TAIL[i];
+
+                pathProbability[depth - 1] = pathProbability[depth] * probability;
+                if (isMaxPlayer) {
+                    double childBeta = (beta - probed - rest * Heuristic.MIN_SCORE) / probability;
+                    lower[i] = probeNode(state, depth, Heuristic.MIN_SCORE,
+                                         Math.min(childBeta, Heuristic.MAX_SCORE), ROLL_ORDER[i], true);
+                    probed += probability * lower[i];
+
+                    double bound = probed + rest * Heuristic.MIN_SCORE;
+                    if (bound >= beta) {
+                        stats.incrementChanceCutoff();
+                        storeEntry(key, depth, TranspositionTable.LOWER, bound);
+                        return bound;
+                    }
+                } else {
+                    double childAlpha = (alpha - probed - rest * Heuristic.MAX_SCORE) / probability;
+                    upper[i] = probeNode(state, depth, Math.max(childAlpha, Heuristic.MIN_SCORE),
+                                         Heuristic.MAX_SCORE, ROLL_ORDER[i], false);
+                    probed += probability * upper[i];
+
+                    double bound = probed + rest * Heuristic.MAX_SCORE;
+                    if (bound <= alpha) {
+                        stats.incrementChanceCutoff();
+                        storeEntry(key, depth, TranspositionTable.UPPER, bound);
+                        return bound;
+                    }
+                }
+            }
+        }
+
+        // Star1: search every roll with the window that still matters for
+        // the expected value, given the bounds of the rolls not yet searched
+        double expectedValue = 0.0;
+
+        for (int i = 0; i < ROLL_ORDER.length; i++) {
+            int roll = ROLL_ORDER[i];
+            double probability = ROLL_PROBABILITY[i];
+            double restLower = weightedTail(lower, i);
+            double restUpper = weightedTail(upper, i);
+
+            double childAlpha = (alpha - expectedValue - restUpper) / probability;
+            double childBeta = (beta - expectedValue - restLower) / probability;
+
+            if (childAlpha >= upper[i]) {
+                double bound = expectedValue + probability * upper[i] + restUpper;
+                stats.incrementChanceCutoff();
+                storeEntry(key, depth, TranspositionTable.UPPER, bound);
+                return bound;
+            }
+            if (childBeta <= lower[i]) {
+                double bound = expectedValue + probability * lower[i] + restLower;
+                stats.incrementChanceCutoff();
+                storeEntry(key, depth, TranspositionTable.LOWER, bound);
+                return bound;
+            }
+
+            pathProbability[depth - 1] = pathProbability[depth] * probability;
+            double value = childNode(state, depth,
+                                     Math.max(childAlpha, lower[i]),
+                                     Math.min(childBeta, upper[i]), roll, isMaxPlayer);
+
+            if (value <= childAlpha) {
+                double bound = expectedValue + probability * value + restUpper;
+                stats.incrementChanceCutoff();
+                storeEntry(key, depth, TranspositionTable.UPPER, bound);
+                return bound;
+            }
+            if (value >= childBeta) {
+                double bound = expectedValue + probability * value + restLower;
+                stats.incrementChanceCutoff();
+                storeEntry(key, depth, TranspositionTable.LOWER, bound);
+                return bound;
+            }
+
+            expectedValue += probability * value;
+        }
+
+        storeEntry(key, depth, TranspositionTable.EXACT, expectedValue);
+        return expectedValue;
+    }
+
+    /**
+     * Chance node searching rolls drawn by probability (with replacement)
+     * instead of all of them; the value is the mean of the draws. The
+     * draws are seeded from the position hash, so a position always draws
+     * the same rolls. The children are searched with a full window: the
+     * mean of a few samples gives Star1 too little to prune with.
+     */
+    private double sampledChanceNode(GameState state, int depth, long key, boolean isMaxPlayer) {
+        stats.incrementSampledChance();
+        int samples = approximation.getSamples();
+        int[] counts = sampleCounts[depth];
+        Arrays.fill(counts, 0);
+        long seed = key;
+        for (int s = 0; s < samples; s++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            double u = (seed >>> 11) * 0x1.0p-53;
+            int i = 0;
+            while (i < ROLL_ORDER.length - 1 && u >= ROLL_CUMULATIVE[i]) {
+                i++;
+            }
+            counts[i]++;
+        }
+
+        double sum = 0.0;
+        for (int i = 0; i < ROLL_ORDER.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            pathProbability[depth - 1] = pathProbability[depth] * ROLL_PROBABILITY[i];
+            sum += counts[i] * childNode(state, depth, Heuristic.MIN_SCORE, Heuristic.MAX_SCORE,
+                                         ROLL_ORDER[i], isMaxPlayer);
+        }
+        double value = sum / samples;
+        storeEntry(key, depth, TranspositionTable.EXACT, value);
+        return value;
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Probability-weighted sum of the bounds of the rolls after index i
+     */
+    private static double weightedTail(double[] bounds, int i) {
+        double sum = 0.0;
+        for (int j = i + 1; j < ROLL_ORDER.length; j++) {
+            sum += ROLL_PROBABILITY[j] * bounds[j];
+        }
+        return sum;
+    }
+
+    /**
+     * Whether either side could bear off its last piece in the given number
+     * of plies: a side moves every other ply and exits at most one piece a
+     * move. A win jumps to +-Heuristic.WIN_SCORE, which maxMoveSwing()
+     * doesn't bound, so futility pruning must not be applied there.
+     */
+    private static boolean canWinWithin(GameState state, int plies) {
+        long bits = state.getBits();
+        int moves = (plies + 1) / 2;
+        return Integer.bitCount(BitBoard.whiteMask(bits)) <= moves
+                || Integer.bitCount(BitBoard.blackMask(bits)) <= moves;
+    }
+
+    /**
+     * Value of a chance node that isn't searched any further (game over,
+     * table hit, depth reached or too unlikely), or NaN if it must be searched
+     */
+    private double leafValue(GameState state, int depth) {
+        if (GameRules.isTerminalState(state)) {
+            return heuristic.score(state, computerPlayer);
+        }
+
+        // Solved endgame: the exact value, whatever the remaining depth
+        if (endgame != null && endgame.covers(state)) {
+            stats.incrementEndgameHit();
+            return endgame.score(state, computerPlayer);
+        }
+
+        // Race: the sides are treated as independent from here on
+        if (race != null && race.covers(state)) {
+            stats.incrementRaceHit();
+            return race.score(state, computerPlayer);
+        }
+
+        if (depth == 0) {
+            return heuristic.score(state, computerPlayer);
+        }
+
+        // Too unlikely to be worth searching
+        if (approximation.cutsOff(pathProbability[depth])) {
+            stats.incrementProbabilityCutoff();
+            return heuristic.score(state, computerPlayer);
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Value of the chance node below a root move if it is a leaf (see
+     * chanceNode), or NaN if the parallel chance layer must search its rolls
+     */
+    double chanceLayerLeaf(GameState state, int rootDepth) {
+        this.rootDepth = rootDepth;
+        pathProbability[rootDepth - 1] = 1.0;
+        stats.incrementNode(TurnType.CHANCE);
+        stats.updateMaxDepth(rootDepth - 1);
+        return leafValue(state, rootDepth - 1);
+    }
+
+    /**
+     * Full-window value of one roll of the chance node below a root move,
+     * for the parallel search of that chance layer
+     */
+    double rollNode(GameState state, int rootDepth, int rollIndex) {
+        this.rootDepth = rootDepth;
+        pathProbability[rootDepth - 2] = ROLL_PROBABILITY[rollIndex];
+        return childNode(state, rootDepth - 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                         ROLL_ORDER[rollIndex], false);
+    }
+
+    double childNode(GameState state, int depth, double alpha, double beta,
+                             int roll, boolean isMaxPlayer) {
+        if (isMaxPlayer) {
+            return maxNode(state, depth, alpha, beta, roll);
+        }
+        return minNode(state, depth, alpha, beta, roll);
+    }
+
+    /**
+     * Star2 probe - search only the first move of a MAX/MIN node (in move
+     * ordering order). The result is a lower bound for a MAX node and an
+     * upper bound for a MIN node.
+     */
+    private double probeNode(GameState state, int depth, double alpha, double beta,
+                             int roll, boolean isMaxPlayer) {
+        stats.incrementNode(isMaxPlayer ? TurnType.MAX : TurnType.MIN);
+
+        int[] moves = moveBuffers[depth];
+        int count = GameRules.generateMoves(state, roll, moves);
+
+        // No legal moves - the skipped turn is the whole node
+        if (count == 0) {
+            state.switchPlayer();
+            double value = chanceNode(state, depth - 1, alpha, beta, !isMaxPlayer);
+            state.switchPlayer();
+            return value;
+        }
+
+        long key = state.getHash() ^ Zobrist.rollKey(roll);
+        ordering.order(moves, count, depth, roll, bestMoveFor(key));
+        GameRules.makeMove(state, moves[0]);
+        double value;
+        if (GameRules.isTerminalState(state)) {
+            value = heuristic.score(state, computerPlayer);
+        } else {
+            state.switchPlayer();
+            value = chanceNode(state, depth - 1, alpha, beta, !isMaxPlayer);
+        }
+        GameRules.unmakeMove(state);
+
+        // The probed move is the node's first move; the full search of the
+        // node later starts with a window its first move can't cut
+        if (isMaxPlayer ? value >= beta : value <= alpha) {
+            stats.incrementCutoff(isMaxPlayer ? TurnType.MAX : TurnType.MIN, true);
+        }
+        return value;
+    }
+
+    /**
+     * MAX node - Computer player's turn (maximize)
+     */
+    private double maxNode(GameState state, int depth,
+                          double alpha, double beta, int roll) {
+        stats.incrementNode(TurnType.MAX);
+
+        if (outOfBudget()) {
+            return 0.0;
+        }
+
+        long key = state.getHash() ^ Zobrist.rollKey(roll);
+        double cached = probeTable(key, depth, alpha, beta);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        double alphaOrig = alpha;
+        double betaOrig = beta;
+
+        int[] moves = moveBuffers[depth];
+        int count = GameRules.generateMoves(state, roll, moves);
+
+        // No legal moves - skip turn
+        if (count == 0) {
+            state.switchPlayer();
+            double value = chanceNode(state, depth - 1, alpha, beta, false);
+            state.switchPlayer();
+            return value;
+        }
+
+        double maxValue = Double.NEGATIVE_INFINITY;
+        ordering.order(moves, count, depth, roll, bestMoveFor(key));
+        int bestMove = moves[0];
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            GameRules.makeMove(state, move);
+
+            // Terminal state check
+            if (GameRules.isTerminalState(state)) {
+                double value = heuristic.score(state, computerPlayer);
+                GameRules.unmakeMove(state);
+                return value;
+            }
+
+            // Futility: even the largest possible swing in each remaining
+            // ply can't lift this move above alpha
+            if (futilityEnabled && depth <= FUTILITY_DEPTH && !canWinWithin(state, depth - 1)) {
+                double optimistic = heuristic.score(state, computerPlayer) + (depth - 1) * moveSwing;
+                if (optimistic <= alpha) {
+                    GameRules.unmakeMove(state);
+                    stats.incrementFutilityPrune();
+                    maxValue = Math.max(maxValue, optimistic);
+                    continue;
+                }
+            }
+
+            state.switchPlayer();
+            double value;
+            if (reduces(i, depth, move)) {
+                // Late quiet move: a shallower null-window search first,
+                // the full search only if it may beat alpha after all
+                stats.incrementReduction();
+                pathProbability[depth - 2] = pathProbability[depth - 1];
+                value = chanceNode(state, depth - 2, alpha, Math.nextUp(alpha), false);
+                if (value > alpha) {
+                    stats.incrementReSearch();
+                    value = chanceNode(state, depth - 1, alpha, beta, false);
+                }
+            } else {
+                value = chanceNode(state, depth - 1, alpha, beta, false);
+            }
+            GameRules.unmakeMove(state);
+
+            if (value > maxValue) {
+                maxValue = value;
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, value);
+
+            // Alpha-beta pruning
+            if (beta <= alpha) {
+                stats.incrementCutoff(TurnType.MAX, i == 0);
+                ordering.recordCutoff(move, depth, roll);
+                break;
+            }
+        }
+
+        storeResult(key, depth, alphaOrig, betaOrig, maxValue, Move.fromOf(bestMove));
+        return maxValue;
+    }
+
+    /**
+     * MIN node - Opponent's turn (minimize)
+     */
+    private double minNode(GameState state, int depth,
+                          double alpha, double beta, int roll) {
+        stats.incrementNode(TurnType.MIN);
+
+        if (outOfBudget()) {
+            return 0.0;
+        }
+
+        long key = state.getHash() ^ Zobrist.rollKey(roll);
+        double cached = probeTable(key, depth, alpha, beta);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        double alphaOrig = alpha;
+        double betaOrig = beta;
+
+        int[] moves = moveBuffers[depth];
+        int count = GameRules.generateMoves(state, roll, moves);
+
+        // No legal moves - skip turn
+        if (count == 0) {
+            state.switchPlayer();
+            double value = chanceNode(state, depth - 1, alpha, beta, true);
+            state.switchPlayer();
+            return value;
+        }
+
+        double minValue = Double.POSITIVE_INFINITY;
+        ordering.order(moves, count, depth, roll, bestMoveFor(key));
+        int bestMove = moves[0];
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            GameRules.makeMove(state, move);
+
+            // Terminal state check
+            if (GameRules.isTerminalState(state)) {
+                double value = heuristic.score(state, computerPlayer);
+                GameRules.unmakeMove(state);
+                return value;
+            }
+
+            if (futilityEnabled && depth <= FUTILITY_DEPTH && !canWinWithin(state, depth - 1)) {
+                double pessimistic = heuristic.score(state, computerPlayer) - (depth - 1) * moveSwing;
+                if (pessimistic >= beta) {
+                    GameRules.unmakeMove(state);
+                    stats.incrementFutilityPrune();
+                    minValue = Math.min(minValue, pessimistic);
+                    continue;
+                }
+            }
+
+            state.switchPlayer();
+            double value;
+            if (reduces(i, depth, move)) {
+                stats.incrementReduction();
+                pathProbability[depth - 2] = pathProbability[depth - 1];
+                value = chanceNode(state, depth - 2, Math.nextDown(beta), beta, true);
+                if (value < beta) {
+                    stats.incrementReSearch();
+                    value = chanceNode(state, depth - 1, alpha, beta, true);
+                }
+            } else {
+                value = chanceNode(state, depth - 1, alpha, beta, true);
+            }
+            GameRules.unmakeMove(state);
+
+            if (value < minValue) {
+                minValue = value;
+                bestMove = move;
+            }
+            beta = Math.min(beta, value);
+
+            // Alpha-beta pruning
+            if (beta <= alpha) {
+                stats.incrementCutoff(TurnType.MIN, i == 0);
+                ordering.recordCutoff(move, depth, roll);
+                break;
+            }
+        }
+
+        storeResult(key, depth, alphaOrig, betaOrig, minValue, Move.fromOf(bestMove));
+        return minValue;
+    }
+
+    /**
+     * Whether a move is searched with a late-move reduction first: a quiet
+     * move (neither an exit nor a swap) ordered late at a deep enough node
+     */
+    private boolean reduces(int index, int depth, int move) {
+        return reductionsEnabled && index >= LMR_FIRST_MOVE && depth >= LMR_MIN_DEPTH
+                && !Move.isExit(move) && !Move.isSwap(move);
+    }
+
+    /**
+     * Called on every node; reports to the shared limits every
+     * SearchLimits.CHECK_INTERVAL nodes
+     */
+    private boolean outOfBudget() {
+        if (limits.isAborted()) {
+            return true;
+        }
+        if (++nodeCounter == SearchLimits.CHECK_INTERVAL) {
+            nodeCounter = 0;
+            return limits.checkpoint();
+        }
+        return false;
+    }
+
+    private static int[] orderRollsByProbability() {
+        return Arrays.stream(SticksManager.getAllPossibleRolls())
+                .boxed()
+                .sorted((a, b) -> Double.compare(SticksManager.getProbability(b),
+                                                 SticksManager.getProbability(a)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private double probeTable(long key, int depth, double alpha, double beta) {
+        stats.incrementTableProbe();
+        double value = table.usableValue(key, depth, alpha, beta);
+        if (!Double.isNaN(value)) {
+            stats.incrementTableHit();
+        }
+        return value;
+    }
+
+    /**
+     * Store a fail-soft MAX/MIN result with its bound type relative to the
+     * window it was searched with
+     */
+    private void storeResult(long key, int depth, double alpha, double beta, double value, int bestFrom) {
+        int bound = TranspositionTable.EXACT;
+        if (value <= alpha) {
+            bound = TranspositionTable.UPPER;
+        } else if (value >= beta) {
+            bound = TranspositionTable.LOWER;
+        }
+        storeEntry(key, depth, bound, value, bestFrom);
+    }
+
+    private void storeEntry(long key, int depth, int bound, double value) {
+        storeEntry(key, depth, bound, value, 0);
+    }
+
+    private void storeEntry(long key, int depth, int bound, double value, int bestFrom) {
+        // Values computed after the budget ran out are meaningless
+        if (!limits.isAborted()) {
+            table.store(key, depth, bound, value, bestFrom);
+        }
+    }
+
+    /**
+     * From-square of the best move stored for a node at any depth, 0 if none
+     */
+    private int bestMoveFor(long key) {
+        return TranspositionTable.bestMoveOf(table.probe(key));
+    }
+}
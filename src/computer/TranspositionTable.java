@@ -0,0 +1,154 @@
+package computer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for expectiminimax node values, shared by
+ * all threads of a search without locking.
+ *
+ * Each slot holds three words: the value (double bits), a packed data word
+ *   bits  0-7   remaining depth
+ *   bits  8-9   bound type (EXACT / LOWER / UPPER)
+ *   bits 10-17  search generation
+ *   bits 18-22  from-square of the best move (0 = none)
+ *   bit  63     valid flag
+ * and a check word, the key XOR the other two. Every word is read and
+ * written as one atomic 64-bit access, and a reader recomputes the key from
+ * the three words it loaded, so a slot that another thread was writing at
+ * the same time shows up as a miss instead of a wrong entry. No locks are
+ * taken, which lets Lazy SMP helper threads share the table freely.
+ *
+ * Replacement is depth-preferred between positions: an entry from the current
+ * search is only overwritten by another position's result of equal or greater
+ * depth. A new result for the same position always replaces the old one, and
+ * entries left over from earlier searches can always be replaced.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1; // value is a lower bound (fail high)
+    public static final int UPPER = 2; // value is an upper bound (fail low)
+
+    public static final int DEFAULT_SIZE_BITS = 20; // 1M entries, 24 MB
+
+    private static final long VALID = 1L << 63;
+
+    // Opaque access: atomic for longs, no ordering cost on the hot path
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] checks;
+    private final long[] data;
+    private final long[] values;
+    private final int indexMask;
+    private volatile int generation;
+
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_BITS);
+    }
+
+    public TranspositionTable(int sizeBits) {
+        int size = 1 << sizeBits;
+        this.checks = new long[size];
+        this.data = new long[size];
+        this.values = new long[size];
+        this.indexMask = size - 1;
+    }
+
+    /**
+     * Start a new search; older entries become preferred replacement victims
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(checks, 0L);
+        Arrays.fill(data, 0L);
+        Arrays.fill(values, 0L);
+    }
+
+    /**
+     * Look up a key
+     * @return packed data word, or 0 if the key is not stored
+     */
+    public long probe(long key) {
+        int index = (int) key & indexMask;
+        long entry = load(data, index);
+        long value = load(values, index);
+        if (entry != 0 && (load(checks, index) ^ entry ^ value) == key) {
+            return entry;
+        }
+        return 0;
+    }
+
+    public void store(long key, int depth, int bound, double value) {
+        store(key, depth, bound, value, 0);
+    }
+
+    /**
+     * Store a result together with the from-square of the node's best move,
+     * which move ordering tries first the next time the node is searched
+     */
+    public void store(long key, int depth, int bound, double value, int bestFrom) {
+        int index = (int) key & indexMask;
+        long old = load(data, index);
+        long oldValue = load(values, index);
+        int currentGeneration = generation;
+        if (old != 0 && (load(checks, index) ^ old ^ oldValue) != key
+                && generationOf(old) == currentGeneration && depthOf(old) > depth) {
+            return;
+        }
+        long entry = VALID
+                | ((long) bestFrom << 18)
+                | ((long) currentGeneration << 10)
+                | ((long) bound << 8)
+                | depth;
+        long valueBits = Double.doubleToRawLongBits(value);
+        SLOT.setOpaque(data, index, entry);
+        SLOT.setOpaque(values, index, valueBits);
+        SLOT.setOpaque(checks, index, key ^ entry ^ valueBits);
+    }
+
+    /**
+     * Value stored for a key if it can stand in for a search of the given
+     * depth and window, otherwise NaN. Only entries searched to exactly this
+     * depth are used so a result never depends on what else happens to be
+     * stored (and parallel searches agree with sequential ones).
+     */
+    public double usableValue(long key, int depth, double alpha, double beta) {
+        int index = (int) key & indexMask;
+        long entry = load(data, index);
+        long valueBits = load(values, index);
+        if (entry == 0 || (load(checks, index) ^ entry ^ valueBits) != key || depthOf(entry) != depth) {
+            return Double.NaN;
+        }
+        double value = Double.longBitsToDouble(valueBits);
+        switch (boundOf(entry)) {
+            case EXACT: return value;
+            case LOWER: return value >= beta ? value : Double.NaN;
+            case UPPER: return value <= alpha ? value : Double.NaN;
+        }
+        return Double.NaN;
+    }
+
+    private static long load(long[] words, int index) {
+        return (long) SLOT.getOpaque(words, index);
+    }
+
+    public static int depthOf(long entry) {
+        return (int) entry & 0xFF;
+    }
+
+    public static int boundOf(long entry) {
+        return (int) (entry >>> 8) & 0x3;
+    }
+
+    public static int bestMoveOf(long entry) {
+        return (int) (entry >>> 18) & 0x1F;
+    }
+
+    private static int generationOf(long entry) {
+        return (int) (entry >>> 10) & 0xFF;
+    }
+}
@@ -0,0 +1,519 @@
+package game;
+
+import models.Player;
+import models.GameState;
+import models.Move;
+import computer.EndgameTable;
+import computer.EngineType;
+import computer.Expectiminimax;
+import computer.GameResult;
+import computer.GameStats;
+import computer.LazySmpSearch;
+import computer.MctsSearch;
+import computer.OpeningBook;
+import computer.Ponderer;
+import computer.RaceTable;
+import computer.RollAnalysis;
+import computer.SearchBudget;
+import computer.SearchEngine;
+import computer.SearchListener;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Headless engine mode: a line-based protocol on stdin/stdout in the
+ * spirit of UCI, so match managers and scripts can drive one long-lived
+ * engine process, with its JIT warm and its tables filled, for many games.
+ *
+ * Commands:
+ *   senet                  identify; answered with id lines and "senetok"
+ *   isready                answered with "readyok"
+ *   newgame                clear the engines' tables, set the initial position
+ *   position startpos|<squares> <side> [moves <roll>:<move> ...]
+ *                          set a position (see GameState.fromNotation) and play
+ *                          the moves on it; a move is from-to (31 = off the
+ *                          board) or "pass"
+ *   roll <n>               the sticks show n (1-5)
+ *   go [roll n] [depth d] [time ms] [nodes n]
+ *                          search the position with the roll
+ *   analyze [depth d] [time ms] [nodes n]
+ *                          best move for every roll and the expected value
+ *                          (expectiminimax only)
+ *   ponder [depth d] [time ms] [nodes n]
+ *                          search the position for every roll in the background;
+ *                          the next go answers at once if its roll is done
+ *   stop                   finish the running search now
+ *   stats                  statistics of the last search
+ *   display                the position and roll
+ *   quit
+ *
+ * Replies to a search, in order:
+ *   info depth d value v nodes n time ms nps n move m   after each iteration
+ *   info string book|pondered                            where the move came from
+ *   bestmove <move>|pass
+ *   rollmove <roll> <move>|pass value v                  analyze, for each roll
+ *   expectedvalue v                                      analyze
+ * Values are from the point of view of the side to move. A malformed or
+ * untimely command is answered with "error <message>" and changes nothing.
+ */
+public class EngineProtocol {
+    private final EngineType engineType;
+    private final int threads;
+    private final SearchBudget defaultBudget;
+    private final BufferedReader in;
+    private final PrintStream out;
+    private EndgameTable endgame;
+    private RaceTable race;
+    private OpeningBook book;
+
+    // One engine per side, since an engine searches for a fixed player
+    private final Map<Player, SearchEngine> engines = new EnumMap<>(Player.class);
+    private GameState position = new GameState();
+    private int roll;
+
+    private SearchEngine lastEngine;
+    private Ponderer ponderer;
+    private Thread searchThread;
+    private volatile SearchEngine searching;
+
+    public EngineProtocol(EngineType engineType, int threads, SearchBudget defaultBudget,
+                          InputStream in, PrintStream out) {
+        this.engineType = engineType;
+        this.threads = threads;
+        this.defaultBudget = defaultBudget;
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+    }
+
+    public void setEndgameTable(EndgameTable endgame) {
+        this.endgame = endgame;
+    }
+
+    public void setRaceTable(RaceTable race) {
+        this.race = race;
+    }
+
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Answer commands until "quit" or the end of the input
+     */
+    public void run() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens[0].isEmpty()) {
+                continue;
+            }
+            if (tokens[0].equals("quit")) {
+                break;
+            }
+            try {
+                execute(tokens);
+            } catch (IllegalArgumentException e) {
+                out.println("error " + e.getMessage());
+            }
+        }
+        stopSearch();
+        stopPondering();
+    }
+
+    private void execute(String[] tokens) {
+        switch (tokens[0]) {
+            case "senet":
+                out.println("id name Senet");
+                out.println("id engine " + engineType.getName() + " threads " + threads);
+                out.println("senetok");
+                break;
+            case "isready":
+                out.println("readyok");
+                break;
+            case "newgame":
+                requireIdle();
+                stopPondering();
+                for (SearchEngine engine : engines.values()) {
+                    clearTable(engine);
+                }
+                position = new GameState();
+                roll = 0;
+                break;
+            case "position":
+                requireIdle();
+                setPosition(tokens);
+                break;
+            case "roll":
+                requireIdle();
+                if (tokens.length != 2) {
+                    throw new IllegalArgumentException("usage: roll <n>");
+                }
+                roll = parseRoll(tokens[1]);
+                break;
+            case "go":
+                requireIdle();
+                go(tokens);
+                break;
+            case "analyze":
+                requireIdle();
+                analyze(tokens);
+                break;
+            case "ponder":
+                requireIdle();
+                ponder(tokens);
+                break;
+            case "stop":
+                SearchEngine running = searching;
+                if (running != null) {
+                    running.stop();
+                }
+                break;
+            case "stats":
+                printStats();
+                break;
+            case "display":
+                out.println("position " + position.toNotation() + " roll " + roll
+                            + (position.isGameOver() ? " winner " + position.getWinner() : ""));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown command " + tokens[0]);
+        }
+    }
+
+    private void setPosition(String[] tokens) {
+        if (tokens.length < 2) {
+            throw new IllegalArgumentException("usage: position startpos|<squares> <side> [moves ...]");
+        }
+        int next;
+        GameState state;
+        if (tokens[1].equals("startpos")) {
+            state = new GameState();
+            next = 2;
+        } else if (tokens.length >= 3) {
+            state = GameState.fromNotation(tokens[1] + " " + tokens[2]);
+            next = 3;
+        } else {
+            throw new IllegalArgumentException("position needs squares and a side to move");
+        }
+        if (next < tokens.length) {
+            if (!tokens[next].equals("moves")) {
+                throw new IllegalArgumentException("expected moves, got " + tokens[next]);
+            }
+            for (int i = next + 1; i < tokens.length; i++) {
+                if (state.isGameOver()) {
+                    throw new IllegalArgumentException("game is over before " + tokens[i]);
+                }
+                state = playMove(state, tokens[i]);
+            }
+        }
+        position = state;
+        roll = 0;
+    }
+
+    /**
+     * Play one turn written as roll:move, the way GameController does
+     */
+    private static GameState playMove(GameState state, String token) {
+        int colon = token.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("move " + token + " is not <roll>:<move>");
+        }
+        int roll = parseRoll(token.substring(0, colon));
+        List<Move> legalMoves = GameRules.getLegalMoves(state, roll);
+        String text = token.substring(colon + 1);
+        GameState next;
+        if (text.equals("pass")) {
+            if (!legalMoves.isEmpty()) {
+                throw new IllegalArgumentException("cannot pass with legal moves in " + token);
+            }
+            next = state.clone();
+        } else {
+            next = GameRules.applyMove(state, findMove(legalMoves, text, token));
+        }
+        if (!next.isGameOver()) {
+            next.switchPlayer();
+        }
+        return next;
+    }
+
+    private static Move findMove(List<Move> legalMoves, String text, String token) {
+        String[] squares = text.split("-");
+        if (squares.length == 2) {
+            try {
+                int from = Integer.parseInt(squares[0]);
+                int to = Integer.parseInt(squares[1]);
+                for (Move move : legalMoves) {
+                    if (move.getFromPosition() == from && move.getToPosition() == to) {
+                        return move;
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("move " + token + " is not from-to");
+            }
+        }
+        throw new IllegalArgumentException("illegal move " + token);
+    }
+
+    private static int parseRoll(String text) {
+        try {
+            int roll = Integer.parseInt(text);
+            if (roll >= 1 && roll <= 5) {
+                return roll;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("roll must be 1-5, got " + text);
+    }
+
+    /**
+     * The roll of "go roll n", or else the last roll command (0 = none)
+     */
+    private int rollParameter(String[] tokens) {
+        for (int i = 1; i + 1 < tokens.length; i += 2) {
+            if (tokens[i].equals("roll")) {
+                return parseRoll(tokens[i + 1]);
+            }
+        }
+        return roll;
+    }
+
+    /**
+     * Budget of a go, analyze or ponder command; unset limits come from
+     * the command line. With only a time or node limit the depth is just a cap.
+     */
+    private SearchBudget parseBudget(String[] tokens, boolean rollAllowed) {
+        int depth = defaultBudget.getMaxDepth();
+        long time = defaultBudget.getTimeLimitMillis();
+        long nodes = defaultBudget.getMaxNodes();
+        boolean depthGiven = false;
+        for (int i = 1; i < tokens.length; i += 2) {
+            if (i + 1 >= tokens.length) {
+                throw new IllegalArgumentException(tokens[i] + " needs a value");
+            }
+            String value = tokens[i + 1];
+            try {
+                switch (tokens[i]) {
+                    case "depth": depth = Integer.parseInt(value); depthGiven = true; break;
+                    case "time": time = Long.parseLong(value); break;
+                    case "nodes": nodes = Long.parseLong(value); break;
+                    case "roll":
+                        if (!rollAllowed) {
+                            throw new IllegalArgumentException(tokens[0] + " searches every roll");
+                        }
+                        parseRoll(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown " + tokens[0] + " parameter " + tokens[i]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(tokens[i] + " must be a number, got " + value);
+            }
+        }
+        if ((time > 0 || nodes > 0) && !depthGiven && !defaultBudget.hasTimeLimit() && !defaultBudget.hasNodeLimit()) {
+            depth = SearchBudget.MAX_DEPTH;
+        }
+        if (depth < 1 || depth > SearchBudget.MAX_DEPTH || time < 0 || nodes < 0) {
+            throw new IllegalArgumentException("depth must be 1-" + SearchBudget.MAX_DEPTH
+                                               + ", time and nodes not negative");
+        }
+        return new SearchBudget(depth, time, nodes);
+    }
+
+    private void go(String[] tokens) {
+        requirePlayable();
+        SearchBudget budget = parseBudget(tokens, true);
+        int searchRoll = rollParameter(tokens);
+        if (searchRoll == 0) {
+            throw new IllegalArgumentException("no roll; send roll <n> or go roll <n>");
+        }
+
+        GameState state = position.clone();
+        SearchEngine engine = engine(state.getCurrentPlayer());
+        GameResult pondered = ponderer == null ? null : ponderer.take(state, searchRoll);
+        stopPondering();
+
+        Move bookMove = book == null ? null : book.lookup(state, searchRoll);
+        if (bookMove != null) {
+            out.println("info string book");
+            out.println("bestmove " + moveText(bookMove));
+            return;
+        }
+        if (pondered != null) {
+            out.println(info(pondered, 0, 0));
+            out.println("info string pondered");
+            out.println("bestmove " + moveText(pondered.getBestMove()));
+            return;
+        }
+
+        startSearch(engine, () -> {
+            long start = System.nanoTime();
+            SearchListener listener = (result, nodes) -> out.println(info(result, nodes, System.nanoTime() - start));
+            engine.setSearchListener(listener);
+            try {
+                GameResult result = engine.search(state, searchRoll, budget);
+                GameStats stats = engine.getStats();
+                List<String> lines = new ArrayList<>();
+                lines.add(info(result, stats.getNodesExplored(), System.nanoTime() - start));
+                lines.add("bestmove " + moveText(result.getBestMove()));
+                return lines;
+            } finally {
+                engine.setSearchListener(null);
+            }
+        });
+    }
+
+    private void analyze(String[] tokens) {
+        requirePlayable();
+        SearchBudget budget = parseBudget(tokens, false);
+        GameState state = position.clone();
+        SearchEngine engine = engine(state.getCurrentPlayer());
+        if (!(engine instanceof Expectiminimax)) {
+            throw new IllegalArgumentException("analyze needs the expectiminimax engine");
+        }
+        stopPondering();
+
+        Expectiminimax expectiminimax = (Expectiminimax) engine;
+        startSearch(engine, () -> {
+            long start = System.nanoTime();
+            RollAnalysis analysis = expectiminimax.analyzeAllRolls(state, budget);
+            List<String> lines = new ArrayList<>();
+            if (analysis == null) {
+                lines.add("error analysis stopped before depth 1");
+                return lines;
+            }
+            GameStats stats = engine.getStats();
+            lines.add(String.format(Locale.ROOT, "info depth %d nodes %d time %d nps %.0f",
+                                    analysis.getDepth(), stats.getNodesExplored(),
+                                    (System.nanoTime() - start) / 1_000_000, stats.getNodesPerSecond()));
+            for (int r = 1; r <= 5; r++) {
+                lines.add(String.format(Locale.ROOT, "rollmove %d %s value %.3f",
+                                        r, moveText(analysis.getBestMove(r)), analysis.getValue(r)));
+            }
+            lines.add(String.format(Locale.ROOT, "expectedvalue %.3f", analysis.getExpectedValue()));
+            return lines;
+        });
+    }
+
+    private void ponder(String[] tokens) {
+        requirePlayable();
+        SearchBudget budget = parseBudget(tokens, false);
+        stopPondering();
+        ponderer = new Ponderer(engine(position.getCurrentPlayer()), budget);
+        ponderer.start(position);
+    }
+
+    private void printStats() {
+        if (lastEngine == null) {
+            throw new IllegalArgumentException("no search yet");
+        }
+        GameStats stats = lastEngine.getStats();
+        out.println(String.format(Locale.ROOT,
+                "stats nodes %d max %d min %d chance %d time %d nps %.0f ebf %.2f tthitrate %.3f "
+                + "cutoffs max %d min %d chance %d depth %d allocated %d",
+                stats.getNodesExplored(), stats.getMaxNodes(), stats.getMinNodes(), stats.getChanceNodes(),
+                stats.getTimeTaken(), stats.getNodesPerSecond(), stats.getEffectiveBranchingFactor(),
+                stats.getTableHitRate(), stats.getMaxCutoffs(), stats.getMinCutoffs(),
+                stats.getChanceCutoffs(), stats.getMaxDepthReached(), stats.getBytesAllocated()));
+    }
+
+    private static String info(GameResult result, long nodes, long nanos) {
+        double nps = nanos > 0 ? nodes * 1e9 / nanos : 0.0;
+        return String.format(Locale.ROOT, "info depth %d value %.3f nodes %d time %d nps %.0f move %s",
+                             result.getDepth(), result.getValue(), nodes, nanos / 1_000_000, nps,
+                             moveText(result.getBestMove()));
+    }
+
+    private static String moveText(Move move) {
+        return move == null ? "pass" : move.getFromPosition() + "-" + move.getToPosition();
+    }
+
+    /**
+     * Run a search on its own thread so stop, isready and stats are
+     * answered meanwhile. The search returns its final lines, which are
+     * printed once the engine is idle again, so a client may send its
+     * next command as soon as it reads them.
+     */
+    private void startSearch(SearchEngine engine, Supplier<List<String>> search) {
+        lastEngine = engine;
+        searching = engine;
+        searchThread = new Thread(() -> {
+            List<String> lines;
+            try {
+                lines = search.get();
+            } catch (RuntimeException e) {
+                lines = List.of("error search failed: " + e);
+            }
+            searching = null;
+            for (String line : lines) {
+                out.println(line);
+            }
+        }, "protocol-search");
+        searchThread.start();
+    }
+
+    private void stopSearch() {
+        if (searchThread == null) {
+            return;
+        }
+        SearchEngine running = searching;
+        if (running != null) {
+            running.stop();
+        }
+        try {
+            searchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+    }
+
+    private void stopPondering() {
+        if (ponderer != null) {
+            ponderer.stop();
+            ponderer = null;
+        }
+    }
+
+    private void requireIdle() {
+        if (searching != null) {
+            throw new IllegalArgumentException("search running; send stop first");
+        }
+    }
+
+    private void requirePlayable() {
+        if (position.isGameOver()) {
+            throw new IllegalArgumentException("game is over");
+        }
+    }
+
+    private SearchEngine engine(Player side) {
+        return engines.computeIfAbsent(side, player -> {
+            // Never verbose: stdout carries the protocol
+            SearchEngine engine = engineType.create(player, false, threads);
+            engine.setEndgameTable(endgame);
+            engine.setRaceTable(race);
+            return engine;
+        });
+    }
+
+    private static void clearTable(SearchEngine engine) {
+        if (engine instanceof Expectiminimax) {
+            ((Expectiminimax) engine).getTable().clear();
+        } else if (engine instanceof LazySmpSearch) {
+            ((LazySmpSearch) engine).getTable().clear();
+        } else if (engine instanceof MctsSearch) {
+            ((MctsSearch) engine).clearTree();
+        }
+    }
+}
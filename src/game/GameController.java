@@ -3,21 +3,45 @@ package game;
 import models.Player;
 import models.GameState;
 import models.Move;
-import computer.Expectiminimax;
+import computer.EndgameTable;
+import computer.EngineType;
+import computer.GameResult;
+import computer.Heuristic;
+import computer.OpeningBook;
+import computer.Ponderer;
+import computer.RaceTable;
+import computer.SearchBudget;
+import computer.SearchEngine;
 import java.util.List;
 import java.util.Scanner;
 
 public class GameController {
     private GameState state;
-    private final int searchDepth;
+    private final SearchBudget searchBudget;
     private final boolean verbose;
     private final Player humanPlayer;
     private final Player computerPlayer;
     private final Scanner scanner;
+    private final SearchEngine computer;
+    private OpeningBook book;
+    private Ponderer ponderer;
 
     public GameController(int searchDepth, boolean verbose, boolean aiFirst) {
+        this(SearchBudget.depth(searchDepth), verbose, aiFirst);
+    }
+
+    public GameController(SearchBudget searchBudget, boolean verbose, boolean aiFirst) {
+        this(searchBudget, verbose, aiFirst, 1);
+    }
+
+    public GameController(SearchBudget searchBudget, boolean verbose, boolean aiFirst, int threads) {
+        this(searchBudget, verbose, aiFirst, EngineType.EXPECTIMINIMAX, threads);
+    }
+
+    public GameController(SearchBudget searchBudget, boolean verbose, boolean aiFirst,
+                          EngineType engineType, int threads) {
         this.state = new GameState();
-        this.searchDepth = searchDepth;
+        this.searchBudget = searchBudget;
         this.verbose = verbose;
         this.scanner = new Scanner(System.in);
 
@@ -28,6 +52,43 @@ public class GameController {
             this.humanPlayer = Player.WHITE;
             this.computerPlayer = Player.BLACK;
         }
+
+        // One engine for the whole game so its transposition table carries over between turns
+        this.computer = engineType.create(computerPlayer, verbose, threads);
+    }
+
+    /**
+     * Let the computer use a solved endgame table
+     */
+    public void setEndgameTable(EndgameTable endgame) {
+        computer.setEndgameTable(endgame);
+    }
+
+    /**
+     * Play moves from an opening book while the game is in it
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Let the computer value race positions with a race table
+     */
+    public void setRaceTable(RaceTable race) {
+        computer.setRaceTable(race);
+    }
+
+    /**
+     * Let the computer search on the human's time: while the human picks a
+     * move, it searches the position after the move it expects for every
+     * roll, and answers at once if it guessed the move and that roll's
+     * search finished
+     */
+    public void setPondering(boolean pondering) {
+        if (ponderer != null) {
+            ponderer.stop();
+        }
+        this.ponderer = pondering ? new Ponderer(computer, searchBudget) : null;
     }
 
     public void playGame() {
@@ -36,7 +97,7 @@ public class GameController {
         System.out.println("╚════════════════════════════════════════════════════════╝");
         System.out.println("\nHuman: " + humanPlayer.getSymbol() +
                           " | Computer: " + computerPlayer.getSymbol());
-        System.out.println("Search Depth: " + searchDepth);
+        System.out.println("Search Budget: " + searchBudget);
 
         while (!state.isGameOver()) {
             BoardDisplay.printBoard(state);
@@ -68,11 +129,13 @@ public class GameController {
                 return; // Exit immediately if game is over
             }
 
+            ponder(state);
             pause();
             return;
         }
 
         BoardDisplay.printLegalMoves(legalMoves);
+        ponder(expectedMove(legalMoves));
 
         int choice = -1;
         boolean validInput = false;
@@ -104,13 +167,57 @@ public class GameController {
         }
 
         state.switchPlayer();
+
+        // Keeps searching if the expected move was played, starts over otherwise
+        ponder(state);
+    }
+
+    /**
+     * The human move the computer expects: the one that leaves the human
+     * with the best heuristic score
+     */
+    private GameState expectedMove(List<Move> legalMoves) {
+        GameState expected = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Move move : legalMoves) {
+            GameState next = GameRules.applyMove(state, move);
+            double score = Heuristic.DEFAULT.score(next, humanPlayer);
+            if (score > bestScore) {
+                bestScore = score;
+                expected = next;
+            }
+        }
+        expected.switchPlayer();
+        return expected;
+    }
+
+    private void ponder(GameState position) {
+        if (ponderer != null) {
+            if (position.isGameOver()) {
+                ponderer.stop();
+            } else {
+                ponderer.start(position);
+            }
+        }
     }
 
     private void computerTurn(int roll) {
         System.out.println("\n>>> Computer is thinking...");
 
-        Expectiminimax computer = new Expectiminimax(computerPlayer, verbose);
-        Move bestMove = computer.getBestMove(state, roll, searchDepth);
+        GameResult pondered = ponderer == null ? null : ponderer.take(state, roll);
+        if (ponderer != null && ponderer.getFailure() != null) {
+            // The engine's own search may still work; just stop pondering for this game
+            System.out.println(">>> Pondering failed, turned off: " + ponderer.getFailure());
+            ponderer = null;
+        }
+        Move bestMove = book == null ? null : book.lookup(state, roll);
+        boolean fromBook = bestMove != null;
+        boolean fromPonder = !fromBook && pondered != null;
+        if (fromPonder) {
+            bestMove = pondered.getBestMove();
+        } else if (!fromBook) {
+            bestMove = computer.getBestMove(state, roll, searchBudget);
+        }
 
         if (bestMove == null) {
             System.out.println("\n>>> Computer has no legal moves. Turn skipped.");
@@ -126,7 +233,11 @@ public class GameController {
 
         BoardDisplay.printMove(bestMove, roll);
 
-        if (verbose) {
+        if (fromBook) {
+            System.out.println(">>> Book move");
+        } else if (fromPonder) {
+            System.out.println(">>> Pondered move");
+        } else if (verbose) {
             computer.getStats().printStats();
         }
 
@@ -142,6 +253,9 @@ public class GameController {
     }
 
     private void gameOver() {
+        if (ponderer != null) {
+            ponderer.stop();
+        }
         BoardDisplay.printBoard(state);
 
         System.out.println("\n╔════════════════════════════════════════════════════════╗");
@@ -6,172 +6,145 @@ import java.util.List;
 
 public class GameRules {
 
+    // Movement rules, compiled into a lookup table (see setRuleTable())
+    private static RuleTable rules = RuleTable.standard();
+
+    /**
+     * Play with different movement rules (a house-rule variant). Not
+     * synchronized with running searches: set it before the game starts.
+     */
+    public static void setRuleTable(RuleTable ruleTable) {
+        rules = ruleTable;
+    }
+
+    public static RuleTable getRuleTable() {
+        return rules;
+    }
+
     /**
      * Get all legal moves for current player given a roll
      */
     public static List<Move> getLegalMoves(GameState state, int roll) {
-        List<Move> legalMoves = new ArrayList<>();
+        int[] moves = new int[BitBoard.PIECES_PER_PLAYER];
+        int count = generateMoves(state, roll, moves);
         Player currentPlayer = state.getCurrentPlayer();
-        Board board = state.getBoard();
 
-        int[] piecePositions = board.getPiecePositions(currentPlayer);
+        List<Move> legalMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            legalMoves.add(Move.of(moves[i], currentPlayer));
+        }
+        return legalMoves;
+    }
 
-        for (int fromPos : piecePositions) {
+    /**
+     * Write the legal moves for the current player, packed as in Move, into
+     * the buffer (at least BitBoard.PIECES_PER_PLAYER long) without
+     * allocating anything. Moves come in board order.
+     * @return number of moves written
+     */
+    public static int generateMoves(GameState state, int roll, int[] moves) {
+        RuleTable table = rules;
+        int count = 0;
+        Player currentPlayer = state.getCurrentPlayer();
+        int own = state.getOccupancy(currentPlayer);
+        int opponent = state.getOccupancy(currentPlayer.opponent());
 
-            int toPos = fromPos + roll;
+        for (int pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int fromPos = BitBoard.lowestSquare(pieces);
 
-            // Special handling for last 5 squares
-            if (fromPos >= 26) {
-                Move exitMove = checkSpecialSquareExit(state, fromPos, roll);
-                if (exitMove != null) {
-                    legalMoves.add(exitMove);
-                    continue;
-                }
-            }
+            // The occupant of the target square picks the table entry (bit(0)
+            // lies outside the board, so "no target" reads as empty)
+            int target = BitBoard.bit(table.target(fromPos, roll));
+            int occupant = (own & target) != 0 ? RuleTable.OWN
+                    : (opponent & target) != 0 ? RuleTable.OPPONENT : RuleTable.EMPTY;
+            int entry = table.entry(fromPos, roll, occupant);
 
-            // Special handling for moves involving square 26 (House of Happiness)
-            if (toPos == 26) {
-                // House of Happiness - must land exactly
-                if(board.isEmpty(toPos))
-                legalMoves.add(new Move(fromPos, toPos, currentPlayer, false, false));
-                else
-                    legalMoves.add(new Move(fromPos, toPos, currentPlayer, true, false));
-            } else if (toPos > 26 && fromPos < 26) {
-                // Cannot move past square 26 from positions before 26
-                // Must land exactly on 26 first
-                // This move is illegal
-            } else if (toPos > 30) {
-                // Exit the board
-                legalMoves.add(new Move(fromPos, toPos, currentPlayer, false, true));
-            } else if (fromPos == 26 && toPos > 26) {
-                // From square 26, can move forward (exit or to empty square)
-                if (board.isEmpty(toPos)) {
-                    legalMoves.add(new Move(fromPos, toPos, currentPlayer, false, false));
-                } else if (board.getPieceAt(toPos) == currentPlayer.opponent()) {
-                    // Swap with opponent piece
-                    legalMoves.add(new Move(fromPos, toPos, currentPlayer, true, false));
-                }
-            } else if (board.isEmpty(toPos)) {
-                // Move to empty square
-                legalMoves.add(new Move(fromPos, toPos, currentPlayer, false, false));
-            } else if (board.getPieceAt(toPos) == currentPlayer.opponent()) {
-                // Swap with opponent piece
-                legalMoves.add(new Move(fromPos, toPos, currentPlayer, true, false));
+            if (entry == Move.NONE) {
+                continue;
             }
-            // If occupied by own piece, move is illegal (not added)
+            if ((entry & RuleTable.TO_REBIRTH) != 0) {
+                // Failed exit - back to the House of Rebirth
+                entry = Move.encode(fromPos, findRebirthPosition(state), false, false);
+            }
+            moves[count++] = RuleTable.moveOf(entry);
         }
 
-        return legalMoves;
+        return count;
     }
 
     /**
-     * Check special square exit conditions (squares 26, 28, 29, 30)
+     * Apply a move to the game state (returns new state)
      */
-    private static Move checkSpecialSquareExit(GameState state, int position, int roll) {
-        Player player = state.getCurrentPlayer();
-
-        switch (position) {
-            case 26: // House of Happiness - must land exactly, but can exit if roll takes beyond 30
-                int targetPos = position + roll;
-                if (targetPos > 30) {
-
-                    return new Move(position, targetPos, player, false, true); // Exit
-                } else {
-                    // If moving within bounds, it's a normal move handled elsewhere
-                    return null;
-                }
-
-            case 28: // House of Three Truths - need exactly 3 to exit
-                if (roll == 3) {
-                    return new Move(position, 31, player, false, true);
-                } else {
-                    // If roll is not 3, return to House of Rebirth (square 15)
-                    return new Move(position, 15, player, false, false);
-                }
-
-            case 29: // House of Re-Atoum - need exactly 2 to exit
-                if (roll == 2) {
-                    return new Move(position, 31, player, false, true);
-                } else {
-                    // If roll is not 2, return to House of Rebirth (square 15)
-                    return new Move(position, 15, player, false, false);
-                }
-
-            case 30: // House of Horus - any roll exits
-                return new Move(position, 31, player, false, true);
-        }
+    public static GameState applyMove(GameState state, Move move) {
+        GameState newState = state.clone();
+        playMove(newState, move.getCode(), move.getPlayer());
+        return newState;
+    }
 
-        return null;
+    /**
+     * Apply a move in place, saving what is needed to take it back with
+     * unmakeMove(). Used by the search to walk a single state up and down
+     * the tree. The side to move is not switched; it is restored by
+     * unmakeMove() if the caller switches it.
+     */
+    public static void makeMove(GameState state, Move move) {
+        state.pushUndo();
+        playMove(state, move.getCode(), move.getPlayer());
     }
 
     /**
-     * Apply a move to the game state (returns new state)
+     * makeMove() for a packed move of the player to move
      */
-    public static GameState applyMove(GameState state, Move move) {
-        GameState newState = state.clone();
-        Board board = newState.getBoard();
+    public static void makeMove(GameState state, int move) {
+        state.pushUndo();
+        playMove(state, move, state.getCurrentPlayer());
+    }
+
+    /**
+     * Take back the last makeMove() on this state
+     */
+    public static void unmakeMove(GameState state) {
+        state.popUndo();
+    }
 
-        int fromPos = move.getFromPosition();
-        int toPos = move.getToPosition();
-        Player player = move.getPlayer();
+    private static void playMove(GameState newState, int move, Player player) {
+        int fromPos = Move.fromOf(move);
+        int toPos = Move.toOf(move);
 
-        if (move.isExit()) {
-            // Remove piece from board (exit)
-            board.removePieceAt(fromPos);
-            newState.incrementPiecesExited(player);
+        if (Move.isExit(move)) {
+            // Remove piece from board (exit) - the exited count follows from the occupancy
+            newState.removePieceAt(fromPos);
 
             // Check win condition
             if (newState.getPiecesExited(player) == 7) {
                 newState.setGameOver(player);
             }
-        } else if (move.isSwap()) {
+        } else if (Move.isSwap(move)) {
             // Swap pieces
             Player opponent = player.opponent();
-            board.setPieceAt(fromPos, opponent);
-            board.setPieceAt(toPos, player);
+            newState.setPieceAt(fromPos, opponent);
+            newState.setPieceAt(toPos, player);
         } else {
             // Normal move
-            board.removePieceAt(fromPos);
-            board.setPieceAt(toPos, player);
-
-            // Check special square effects
-            applySpecialSquareEffects(newState, toPos, player);
-        }
-
-        return newState;
-    }
+            newState.removePieceAt(fromPos);
+            newState.setPieceAt(toPos, player);
 
-    /**
-     * Apply effects of special squares
-     */
-    private static void applySpecialSquareEffects(GameState state, int position, Player player) {
-        Board board = state.getBoard();
-
-        switch (position) {
-            case 27: // House of Water - return to House of Rebirth
-                board.removePieceAt(27);
-                // Send to square 15 (Rebirth) or first empty before it
-                int rebirthPos = findRebirthPosition(board);
-                board.setPieceAt(rebirthPos, player);
-                break;
-
-            // Square 15 (Rebirth) is destination, not effect trigger
-            // Square 26 (Happiness) requires exact landing, handled in getLegalMoves
+            // House of Water - return to House of Rebirth
+            if (rules.sendsToRebirth(toPos)) {
+                newState.removePieceAt(toPos);
+                newState.setPieceAt(findRebirthPosition(newState), player);
+            }
         }
     }
 
     /**
      * Find rebirth position (square 15 or first empty before it)
      */
-    private static int findRebirthPosition(Board board) {
-        if (board.isEmpty(15))
-            return 15;
-        // Find first empty square before 15
-        for (int i = 14; i >= 1; i--) {
-            if (board.isEmpty(i))
-                return i;
-        }
-        return 1; // Fallback (shouldn't happen in normal game)
+    private static int findRebirthPosition(GameState state) {
+        int free = ~state.getOccupied() & rules.rebirthSquares();
+        if (free == 0)
+            return 1; // Fallback (shouldn't happen in normal game)
+        return BitBoard.highestSquare(free);
     }
 
     /**
@@ -185,6 +158,6 @@ public class GameRules {
      * Check if a player can make any move with given roll
      */
     public static boolean hasLegalMoves(GameState state, int roll) {
-        return !getLegalMoves(state, roll).isEmpty();
+        return generateMoves(state, roll, new int[BitBoard.PIECES_PER_PLAYER]) > 0;
     }
 }
@@ -0,0 +1,277 @@
+package game;
+
+import models.BitBoard;
+import models.Move;
+import utils.Constants;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The movement rules compiled into a lookup table indexed by
+ * (from square, roll, occupant of the target square). Each entry is the
+ * packed move (see Move) to generate, or Move.NONE if the move is illegal.
+ * Entries flagged TO_REBIRTH get their target from the rebirth rule when
+ * the move is generated, since that depends on the rest of the board.
+ *
+ * A table is compiled from a small rule description, so house-rule
+ * variants are just different descriptions:
+ *
+ *   rebirth   = 15     pieces are reborn here or on the first free square before it
+ *   happiness = 26     must be landed on exactly and can't be passed (0 = no such square)
+ *   water     = 27     landing here sends the piece to rebirth (0 = no such square)
+ *   exit.28   = 3      a piece here exits on these rolls (comma separated,
+ *   exit.29   = 2      or "any"); on any other roll it goes back to rebirth
+ *   exit.30   = any
+ *
+ * Pieces moving past the last square exit. Missing keys keep the
+ * standard rule; the exit rules of a description replace the standard ones.
+ */
+public class RuleTable {
+    public static final int EMPTY = 0;
+    public static final int OWN = 1;
+    public static final int OPPONENT = 2;
+
+    // Entry flag: replace the target with the rebirth square
+    static final int TO_REBIRTH = 1 << 13;
+    private static final int MOVE_MASK = TO_REBIRTH - 1;
+
+    private static final int ROLLS = Constants.MAX_ROLL + 1;
+    private static final int OCCUPANTS = 3;
+    private static final int SQUARES = BitBoard.BOARD_SIZE + 1;
+
+    private final int[] entries = new int[SQUARES * ROLLS * OCCUPANTS];
+    private final int[] targets = new int[SQUARES * ROLLS]; // square whose occupant selects the entry, 0 = none
+    private final boolean[] sendsToRebirth = new boolean[SQUARES];
+    private final int rebirthSquares;
+
+    private RuleTable(int rebirth, int happiness, int water, int[] exitRolls) {
+        this.rebirthSquares = BitBoard.range(1, rebirth);
+        if (water != 0) {
+            sendsToRebirth[water] = true;
+        }
+
+        for (int from = 1; from <= BitBoard.BOARD_SIZE; from++) {
+            for (int roll = Constants.MIN_ROLL; roll <= Constants.MAX_ROLL; roll++) {
+                int slot = from * ROLLS + roll;
+
+                // Squares with an exit rule: exit on the listed rolls, rebirth otherwise
+                if (exitRolls[from] != 0) {
+                    int move = (exitRolls[from] & (1 << roll)) != 0
+                            ? Move.encode(from, BitBoard.BOARD_SIZE + 1, false, true)
+                            : Move.encode(from, 0, false, false) | TO_REBIRTH;
+                    fill(slot, move, move, move);
+                    continue;
+                }
+
+                int to = from + roll;
+                if (happiness != 0 && from < happiness && to > happiness) {
+                    // Must land exactly on the House of Happiness first
+                    fill(slot, Move.NONE, Move.NONE, Move.NONE);
+                } else if (to > BitBoard.BOARD_SIZE) {
+                    int exit = Move.encode(from, to, false, true);
+                    fill(slot, exit, exit, exit);
+                } else {
+                    targets[slot] = to;
+                    fill(slot, Move.encode(from, to, false, false), Move.NONE, Move.encode(from, to, true, false));
+                }
+            }
+        }
+    }
+
+    private void fill(int slot, int empty, int own, int opponent) {
+        entries[slot * OCCUPANTS + EMPTY] = empty;
+        entries[slot * OCCUPANTS + OWN] = own;
+        entries[slot * OCCUPANTS + OPPONENT] = opponent;
+    }
+
+    /**
+     * The rules of the game as played by default
+     */
+    public static RuleTable standard() {
+        return new RuleTable(Constants.HOUSE_OF_REBIRTH, Constants.HOUSE_OF_HAPPINESS,
+                             Constants.HOUSE_OF_WATER, standardExitRolls());
+    }
+
+    /**
+     * Rolls (bit per roll) that exit from each square, 0 for squares
+     * without an exit rule
+     */
+    private static int[] standardExitRolls() {
+        int[] exitRolls = new int[SQUARES];
+        exitRolls[Constants.HOUSE_OF_THREE_TRUTHS] = 1 << 3;
+        exitRolls[Constants.HOUSE_OF_RE_ATOUM] = 1 << 2;
+        exitRolls[Constants.HOUSE_OF_HORUS] = allRolls();
+        return exitRolls;
+    }
+
+    /**
+     * Compile a rule description file (see the class comment)
+     */
+    public static RuleTable load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            Properties rules = new Properties();
+            rules.load(reader);
+            return compile(rules);
+        }
+    }
+
+    /**
+     * Compile a rule description (see the class comment)
+     */
+    public static RuleTable compile(Properties rules) {
+        int rebirth = square(rules, "rebirth", Constants.HOUSE_OF_REBIRTH, false);
+        int happiness = square(rules, "happiness", Constants.HOUSE_OF_HAPPINESS, true);
+        int water = square(rules, "water", Constants.HOUSE_OF_WATER, true);
+
+        int[] exitRolls = standardExitRolls();
+        boolean exitsGiven = false;
+        for (String key : rules.stringPropertyNames()) {
+            if (key.startsWith("exit.")) {
+                if (!exitsGiven) {
+                    Arrays.fill(exitRolls, 0);
+                    exitsGiven = true;
+                }
+                int square = parseSquare(key, key.substring("exit.".length()), false);
+                exitRolls[square] = parseRolls(key, rules.getProperty(key));
+            }
+        }
+        if (water != 0 && exitRolls[water] != 0) {
+            throw new IllegalArgumentException("Square " + water + " can't be both water and an exit square");
+        }
+        return new RuleTable(rebirth, happiness, water, exitRolls);
+    }
+
+    private static int square(Properties rules, String key, int standard, boolean optional) {
+        String value = rules.getProperty(key);
+        return value == null ? standard : parseSquare(key, value, optional);
+    }
+
+    private static int parseSquare(String key, String value, boolean optional) {
+        try {
+            int square = Integer.parseInt(value.trim());
+            if ((square == 0 && optional) || (square >= 1 && square <= BitBoard.BOARD_SIZE)) {
+                return square;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid square for " + key + ": " + value);
+    }
+
+    private static int parseRolls(String key, String value) {
+        if (value.trim().equalsIgnoreCase("any")) {
+            return allRolls();
+        }
+        int rolls = 0;
+        for (String roll : value.split(",")) {
+            try {
+                int r = Integer.parseInt(roll.trim());
+                if (r >= Constants.MIN_ROLL && r <= Constants.MAX_ROLL) {
+                    rolls |= 1 << r;
+                    continue;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("Invalid rolls for " + key + ": " + value);
+        }
+        return rolls;
+    }
+
+    private static int allRolls() {
+        int rolls = 0;
+        for (int roll = Constants.MIN_ROLL; roll <= Constants.MAX_ROLL; roll++) {
+            rolls |= 1 << roll;
+        }
+        return rolls;
+    }
+
+    /**
+     * Hash of the compiled rules. Data derived from the rules, such as a
+     * solved endgame table, records it so it isn't used with other rules.
+     */
+    public long signature() {
+        long hash = rebirthSquares;
+        for (int entry : entries) {
+            hash = hash * 0x100000001B3L + entry;
+        }
+        for (int target : targets) {
+            hash = hash * 0x100000001B3L + target;
+        }
+        for (boolean rebirth : sendsToRebirth) {
+            hash = hash * 0x100000001B3L + (rebirth ? 1 : 0);
+        }
+        return hash;
+    }
+
+    /**
+     * Square whose occupant decides the move from a square with a roll,
+     * 0 if the move doesn't depend on one
+     */
+    int target(int from, int roll) {
+        return targets[from * ROLLS + roll];
+    }
+
+    /**
+     * Table entry: a packed move, possibly flagged TO_REBIRTH, or Move.NONE
+     */
+    int entry(int from, int roll, int occupant) {
+        return entries[(from * ROLLS + roll) * OCCUPANTS + occupant];
+    }
+
+    /**
+     * Squares a piece can end up on moving from a square with a roll, given
+     * the occupant of the target square: bit s for square s, bit
+     * BOARD_SIZE + 1 for exiting, 0 if there is no such move. A move to
+     * rebirth gives every rebirth square, since which one it is depends on
+     * the rest of the board.
+     */
+    public long destinations(int from, int roll, int occupant) {
+        int entry = entry(from, roll, occupant);
+        if (entry == Move.NONE) {
+            return 0L;
+        }
+        int move = moveOf(entry);
+        if ((entry & TO_REBIRTH) != 0) {
+            return rebirthSquares & 0xFFFFFFFFL;
+        }
+        if (Move.isExit(move)) {
+            return 1L << (BitBoard.BOARD_SIZE + 1);
+        }
+        int to = Move.toOf(move);
+        if (!Move.isSwap(move) && sendsToRebirth[to]) {
+            return rebirthSquares & 0xFFFFFFFFL;
+        }
+        return 1L << to;
+    }
+
+    /**
+     * Whether moving from a square with a roll onto an opponent's piece
+     * swaps the two pieces
+     */
+    public boolean swaps(int from, int roll) {
+        return Move.isSwap(moveOf(entry(from, roll, OPPONENT)));
+    }
+
+    static int moveOf(int entry) {
+        return entry & MOVE_MASK;
+    }
+
+    /**
+     * Whether a piece landing on the square (not by a swap) goes to rebirth
+     */
+    boolean sendsToRebirth(int square) {
+        return sendsToRebirth[square];
+    }
+
+    /**
+     * Mask of the rebirth square and the squares before it
+     */
+    int rebirthSquares() {
+        return rebirthSquares;
+    }
+}
@@ -50,6 +50,15 @@ public class SticksManager {
      * @return Roll value (1-5)
      */
     public static int throwSticks() {
+        return throwSticks(random);
+    }
+
+    /**
+     * Simulate throwing 4 sticks with the given source of randomness,
+     * so that seeded games can be replayed
+     * @return Roll value (1-5)
+     */
+    public static int throwSticks(Random random) {
         int darkCount = 0;
 
         // Simulate 4 sticks
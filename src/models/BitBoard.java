@@ -0,0 +1,131 @@
+package models;
+
+/**
+ * Bit-level helpers for the packed position word used by GameState.
+ *
+ * Layout of the 64-bit word:
+ *   bits  0-29  WHITE occupancy (bit n-1 = square n)
+ *   bits 30-59  BLACK occupancy
+ *   bit  60     side to move (0 = WHITE, 1 = BLACK)
+ *   bits 61-62  winner (0 = none, 1 = WHITE, 2 = BLACK)
+ *
+ * Exited counts are not stored separately: pieces are never created or
+ * destroyed, so a player has exited 7 - popcount(occupancy) pieces.
+ */
+public final class BitBoard {
+    public static final int BOARD_SIZE = 30;
+    public static final int PIECES_PER_PLAYER = 7;
+
+    /** All 30 squares */
+    public static final int ALL_SQUARES = (1 << BOARD_SIZE) - 1;
+
+    private static final int BLACK_SHIFT = 30;
+    private static final int SIDE_SHIFT = 60;
+    private static final int WINNER_SHIFT = 61;
+
+    private static final long SIDE_BIT = 1L << SIDE_SHIFT;
+    private static final long WINNER_MASK = 3L << WINNER_SHIFT;
+
+    private BitBoard() {
+    }
+
+    /**
+     * Packed word for the initial alternating setup on squares 1-14
+     */
+    public static long initialPosition() {
+        int white = 0;
+        int black = 0;
+        for (int i = 1; i <= 14; i++) {
+            if (i % 2 == 1) white |= bit(i);
+            else black |= bit(i);
+        }
+        return pack(white, black, Player.WHITE);
+    }
+
+    public static long pack(int whiteMask, int blackMask, Player sideToMove) {
+        long bits = (whiteMask & ALL_SQUARES) | ((long) (blackMask & ALL_SQUARES) << BLACK_SHIFT);
+        return sideToMove == Player.BLACK ? bits | SIDE_BIT : bits;
+    }
+
+    // Square masks
+
+    public static int bit(int square) {
+        return 1 << (square - 1);
+    }
+
+    /** Mask of squares from..to inclusive */
+    public static int range(int from, int to) {
+        return (ALL_SQUARES >>> (BOARD_SIZE - (to - from + 1))) << (from - 1);
+    }
+
+    public static int lowestSquare(int mask) {
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+
+    public static int highestSquare(int mask) {
+        return 32 - Integer.numberOfLeadingZeros(mask);
+    }
+
+    /** Sum of the square numbers set in the mask */
+    public static int squareSum(int mask) {
+        int sum = 0;
+        for (int m = mask; m != 0; m &= m - 1) {
+            sum += lowestSquare(m);
+        }
+        return sum;
+    }
+
+    // Packed word accessors
+
+    public static int occupancy(long bits, Player player) {
+        return player == Player.WHITE ? whiteMask(bits) : blackMask(bits);
+    }
+
+    public static int whiteMask(long bits) {
+        return (int) bits & ALL_SQUARES;
+    }
+
+    public static int blackMask(long bits) {
+        return (int) (bits >>> BLACK_SHIFT) & ALL_SQUARES;
+    }
+
+    public static int occupied(long bits) {
+        return whiteMask(bits) | blackMask(bits);
+    }
+
+    public static long withOccupancy(long bits, Player player, int mask) {
+        if (player == Player.WHITE) {
+            return (bits & ~(long) ALL_SQUARES) | (mask & ALL_SQUARES);
+        }
+        return (bits & ~((long) ALL_SQUARES << BLACK_SHIFT)) | ((long) (mask & ALL_SQUARES) << BLACK_SHIFT);
+    }
+
+    public static Player pieceAt(long bits, int square) {
+        int b = bit(square);
+        if ((whiteMask(bits) & b) != 0) return Player.WHITE;
+        if ((blackMask(bits) & b) != 0) return Player.BLACK;
+        return null;
+    }
+
+    public static int piecesExited(long bits, Player player) {
+        return PIECES_PER_PLAYER - Integer.bitCount(occupancy(bits, player));
+    }
+
+    public static Player sideToMove(long bits) {
+        return (bits & SIDE_BIT) == 0 ? Player.WHITE : Player.BLACK;
+    }
+
+    public static long switchSide(long bits) {
+        return bits ^ SIDE_BIT;
+    }
+
+    public static Player winner(long bits) {
+        int w = (int) ((bits & WINNER_MASK) >>> WINNER_SHIFT);
+        return w == 0 ? null : (w == 1 ? Player.WHITE : Player.BLACK);
+    }
+
+    public static long withWinner(long bits, Player winner) {
+        long w = winner == null ? 0 : winner.getId() + 1;
+        return (bits & ~WINNER_MASK) | (w << WINNER_SHIFT);
+    }
+}
@@ -1,71 +1,47 @@
 package models;
 
+/**
+ * Square-by-square view of a GameState's packed occupancy masks.
+ * Reads and writes go straight through to the owning state.
+ */
 public class Board {
-    private static final int BOARD_SIZE = 30;
-    private Player[] squares;
+    private final GameState state;
 
-    public Board() {
-        squares = new Player[BOARD_SIZE + 1]; // index 0 unused, 1-30 used
-        initializeBoard();
-    }
-
-    // Copy constructor for cloning
-    public Board(Board other) {
-        this.squares = other.squares.clone();
-    }
-
-    private void initializeBoard() {
-        // Initial setup: alternating pieces on first 14 squares
-        for (int i = 1; i <= 14; i++) {
-            squares[i] = (i % 2 == 1) ? Player.WHITE : Player.BLACK;
-        }
-        // Squares 15-30 are empty initially
-        for (int i = 15; i <= BOARD_SIZE; i++) {
-            squares[i] = null;
-        }
+    Board(GameState state) {
+        this.state = state;
     }
 
     public Player getPieceAt(int position) {
-        if (position < 1 || position > BOARD_SIZE) return null;
-        return squares[position];
+        return state.getPieceAt(position);
     }
 
     public void setPieceAt(int position, Player player) {
-        if (position >= 1 && position <= BOARD_SIZE) {
-            squares[position] = player;
-        }
+        state.setPieceAt(position, player);
     }
 
     public void removePieceAt(int position) {
-        setPieceAt(position, null);
+        state.removePieceAt(position);
     }
 
     public boolean isEmpty(int position) {
-        return getPieceAt(position) == null;
+        return state.isEmpty(position);
+    }
+
+    public int getOccupancy(Player player) {
+        return state.getOccupancy(player);
     }
 
     public int[] getPiecePositions(Player player) {
-        int[] positions = new int[7]; // max 7 pieces per player
+        int mask = state.getOccupancy(player);
+        int[] result = new int[Integer.bitCount(mask)];
         int count = 0;
-        for (int i = 1; i <= BOARD_SIZE && count < 7; i++) {
-            if (squares[i] == player) {
-                positions[count++] = i;
-            }
+        for (int m = mask; m != 0; m &= m - 1) {
+            result[count++] = BitBoard.lowestSquare(m);
         }
-        int[] result = new int[count];
-        System.arraycopy(positions, 0, result, 0, count);
         return result;
     }
 
     public int countPieces(Player player) {
-        int count = 0;
-        for (int i = 1; i <= BOARD_SIZE; i++) {
-            if (squares[i] == player) count++;
-        }
-        return count;
-    }
-
-    public Board clone() {
-        return new Board(this);
+        return state.countPieces(player);
     }
 }
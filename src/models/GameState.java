@@ -1,67 +1,220 @@
 package models;
 
+import java.util.Arrays;
+
+/**
+ * Complete game position packed into a single long (see BitBoard for the
+ * layout), so copying a state is a copy of primitives. The Zobrist hash
+ * of the position and the sum of each player's square numbers (for the
+ * evaluation) are kept up to date on every change.
+ */
 public class GameState {
-    private Board board;
-    private Player currentPlayer;
-    private int whitePiecesExited;
-    private int blackPiecesExited;
-    private boolean gameOver;
-    private Player winner;
+    private long bits;
+    private long hash;
+    private int squareSums; // white's in the low 16 bits, black's in the high 16
+    private Board board; // view, created on first getBoard()
+
+    // Saved positions, hashes and square sums for in-place search, see pushUndo()/popUndo()
+    private long[] undoStack;
+    private int undoCount;
 
     public GameState() {
-        this.board = new Board();
-        this.currentPlayer = Player.WHITE;
-        this.whitePiecesExited = 0;
-        this.blackPiecesExited = 0;
-        this.gameOver = false;
-        this.winner = null;
+        this.bits = BitBoard.initialPosition();
+        this.hash = Zobrist.hash(bits);
+        this.squareSums = squareSums(bits);
     }
 
     // Copy constructor
     public GameState(GameState other) {
-        this.board = other.board.clone();
-        this.currentPlayer = other.currentPlayer;
-        this.whitePiecesExited = other.whitePiecesExited;
-        this.blackPiecesExited = other.blackPiecesExited;
-        this.gameOver = other.gameOver;
-        this.winner = other.winner;
+        this.bits = other.bits;
+        this.hash = other.hash;
+        this.squareSums = other.squareSums;
+    }
+
+    public GameState(long bits) {
+        this.bits = bits;
+        this.hash = Zobrist.hash(bits);
+        this.squareSums = squareSums(bits);
+    }
+
+    /**
+     * Replace the position (keeping the undo stack), so one instance can
+     * visit many unrelated positions without allocating
+     */
+    public void setBits(long bits) {
+        this.bits = bits;
+        this.hash = Zobrist.hash(bits);
+        this.squareSums = squareSums(bits);
+    }
+
+    /**
+     * Parse a position written as the 30 squares in order ('W' white,
+     * 'B' black, '.' empty), a space and the side to move ('w' or 'b'),
+     * e.g. "WBWBWBWBWBWBWB................ w"
+     */
+    public static GameState fromNotation(String notation) {
+        String[] parts = notation.trim().split("\\s+");
+        if (parts.length != 2 || parts[0].length() != BitBoard.BOARD_SIZE
+                || !(parts[1].equals("w") || parts[1].equals("b"))) {
+            throw new IllegalArgumentException("Invalid position: " + notation);
+        }
+        int white = 0;
+        int black = 0;
+        for (int square = 1; square <= BitBoard.BOARD_SIZE; square++) {
+            switch (parts[0].charAt(square - 1)) {
+                case 'W': white |= BitBoard.bit(square); break;
+                case 'B': black |= BitBoard.bit(square); break;
+                case '.': break;
+                default: throw new IllegalArgumentException("Invalid square " + square + " in position: " + notation);
+            }
+        }
+        if (Integer.bitCount(white) > BitBoard.PIECES_PER_PLAYER
+                || Integer.bitCount(black) > BitBoard.PIECES_PER_PLAYER) {
+            throw new IllegalArgumentException("Too many pieces in position: " + notation);
+        }
+        Player side = parts[1].equals("w") ? Player.WHITE : Player.BLACK;
+        return new GameState(BitBoard.pack(white, black, side));
+    }
+
+    /**
+     * This position in the notation read by fromNotation() (the winner,
+     * if any, is not part of it)
+     */
+    public String toNotation() {
+        StringBuilder sb = new StringBuilder(BitBoard.BOARD_SIZE + 2);
+        for (int square = 1; square <= BitBoard.BOARD_SIZE; square++) {
+            Player piece = BitBoard.pieceAt(bits, square);
+            sb.append(piece == null ? '.' : (piece == Player.WHITE ? 'W' : 'B'));
+        }
+        return sb.append(' ').append(getCurrentPlayer() == Player.WHITE ? 'w' : 'b').toString();
+    }
+
+    private static int squareSums(long bits) {
+        return BitBoard.squareSum(BitBoard.whiteMask(bits))
+                | BitBoard.squareSum(BitBoard.blackMask(bits)) << 16;
     }
 
     // Getters and setters
+    public long getBits() {
+        return bits;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Sum of the square numbers of the player's pieces on the board
+     */
+    public int getSquareSum(Player player) {
+        return player == Player.WHITE ? squareSums & 0xFFFF : squareSums >>> 16;
+    }
+
     public Board getBoard() {
+        if (board == null) {
+            board = new Board(this);
+        }
         return board;
     }
 
     public Player getCurrentPlayer() {
-        return currentPlayer;
+        return BitBoard.sideToMove(bits);
     }
 
-    public int getPiecesExited(Player player) {
-        return player == Player.WHITE ? whitePiecesExited : blackPiecesExited;
+    public int getOccupancy(Player player) {
+        return BitBoard.occupancy(bits, player);
     }
 
-    public void incrementPiecesExited(Player player) {
-        if (player == Player.WHITE)
-            whitePiecesExited++;
-         else 
-            blackPiecesExited++;
+    public int getOccupied() {
+        return BitBoard.occupied(bits);
+    }
+
+    public Player getPieceAt(int position) {
+        if (position < 1 || position > BitBoard.BOARD_SIZE) return null;
+        return BitBoard.pieceAt(bits, position);
+    }
+
+    public boolean isEmpty(int position) {
+        return getPieceAt(position) == null;
+    }
+
+    public void setPieceAt(int position, Player player) {
+        if (position < 1 || position > BitBoard.BOARD_SIZE) return;
+        Player previous = BitBoard.pieceAt(bits, position);
+        if (previous == player) return;
+        if (previous != null) {
+            hash ^= Zobrist.pieceKey(previous, position);
+            squareSums -= position << (previous.getId() * 16);
+        }
+        if (player != null) {
+            hash ^= Zobrist.pieceKey(player, position);
+            squareSums += position << (player.getId() * 16);
+        }
+
+        int b = BitBoard.bit(position);
+        int white = BitBoard.whiteMask(bits) & ~b;
+        int black = BitBoard.blackMask(bits) & ~b;
+        if (player == Player.WHITE) white |= b;
+        else if (player == Player.BLACK) black |= b;
+        bits = BitBoard.withOccupancy(BitBoard.withOccupancy(bits, Player.WHITE, white), Player.BLACK, black);
+    }
+
+    public void removePieceAt(int position) {
+        setPieceAt(position, null);
+    }
+
+    public int countPieces(Player player) {
+        return Integer.bitCount(getOccupancy(player));
+    }
+
+    public int getPiecesExited(Player player) {
+        return BitBoard.piecesExited(bits, player);
     }
 
     public void switchPlayer() {
-        currentPlayer = currentPlayer.opponent();
+        bits = BitBoard.switchSide(bits);
+        hash ^= Zobrist.sideKey();
     }
 
     public boolean isGameOver() {
-        return gameOver;
+        return BitBoard.winner(bits) != null;
     }
 
     public Player getWinner() {
-        return winner;
+        return BitBoard.winner(bits);
     }
 
     public void setGameOver(Player winner) {
-        this.gameOver = true;
-        this.winner = winner;
+        bits = BitBoard.withWinner(bits, winner);
+    }
+
+    /**
+     * Save the current position so a following in-place change can be
+     * reverted with popUndo(). The saved word covers every effect a move
+     * can have (relocation, swaps, exits, winner and side to move).
+     * The stack is not copied by clone().
+     */
+    public void pushUndo() {
+        if (undoStack == null) {
+            undoStack = new long[192];
+        } else if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+        }
+        undoStack[undoCount++] = bits;
+        undoStack[undoCount++] = hash;
+        undoStack[undoCount++] = squareSums;
+    }
+
+    /**
+     * Restore the position saved by the matching pushUndo()
+     */
+    public void popUndo() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        squareSums = (int) undoStack[--undoCount];
+        hash = undoStack[--undoCount];
+        bits = undoStack[--undoCount];
     }
 
     public GameState clone() {
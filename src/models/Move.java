@@ -1,11 +1,34 @@
 package models;
 
+/**
+ * A move of one piece. Inside the search moves are plain ints (see
+ * encode()); Move objects are only used at the API boundary and are
+ * interned, so of() hands out the same instance for the same move.
+ *
+ * Packed move layout:
+ *   bits 0-4   from square
+ *   bits 5-10  to square (31-35 for exits)
+ *   bit  11    swap flag
+ *   bit  12    exit flag
+ * A legal move always has a from square, so 0 can mean "no move".
+ */
 public class Move {
+    public static final int NONE = 0;
+
+    private static final int SWAP_FLAG = 1 << 11;
+    private static final int EXIT_FLAG = 1 << 12;
+    private static final int CODES = 1 << 13;
+
+    // Interned instances per player, created on first use (a racing thread
+    // at worst creates an equal immutable duplicate)
+    private static final Move[][] INTERNED = new Move[Player.values().length][CODES];
+
     private final int fromPosition;
     private final int toPosition;
     private final Player player;
     private final boolean isSwap;
     private final boolean isExit;
+    private final int code;
 
     public Move(int fromPosition, int toPosition, Player player, boolean isSwap, boolean isExit) {
         this.fromPosition = fromPosition;
@@ -13,6 +36,40 @@ public class Move {
         this.player = player;
         this.isSwap = isSwap;
         this.isExit = isExit;
+        this.code = encode(fromPosition, toPosition, isSwap, isExit);
+    }
+
+    /**
+     * Interned Move for a packed move
+     */
+    public static Move of(int move, Player player) {
+        Move[] interned = INTERNED[player.getId()];
+        Move result = interned[move];
+        if (result == null) {
+            result = new Move(fromOf(move), toOf(move), player, isSwap(move), isExit(move));
+            interned[move] = result;
+        }
+        return result;
+    }
+
+    public static int encode(int fromPosition, int toPosition, boolean isSwap, boolean isExit) {
+        return fromPosition | (toPosition << 5) | (isSwap ? SWAP_FLAG : 0) | (isExit ? EXIT_FLAG : 0);
+    }
+
+    public static int fromOf(int move) {
+        return move & 0x1F;
+    }
+
+    public static int toOf(int move) {
+        return (move >>> 5) & 0x3F;
+    }
+
+    public static boolean isSwap(int move) {
+        return (move & SWAP_FLAG) != 0;
+    }
+
+    public static boolean isExit(int move) {
+        return (move & EXIT_FLAG) != 0;
     }
 
     // Getters
@@ -36,6 +93,13 @@ public class Move {
         return isExit;
     }
 
+    /**
+     * This move packed into an int
+     */
+    public int getCode() {
+        return code;
+    }
+
     @Override
     public String toString() {
         String action = isExit ? "EXIT" : (isSwap ? "SWAP" : "MOVE");
@@ -0,0 +1,62 @@
+package models;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for incremental position hashing.
+ * Keys come from a fixed seed so hashes are stable between runs.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x5E4E7L;
+
+    private static final long[][] PIECE_KEYS = new long[2][BitBoard.BOARD_SIZE + 1];
+    private static final long SIDE_KEY;
+    private static final long[] ROLL_KEYS = new long[6];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int p = 0; p < 2; p++) {
+            for (int sq = 1; sq <= BitBoard.BOARD_SIZE; sq++) {
+                PIECE_KEYS[p][sq] = random.nextLong();
+            }
+        }
+        SIDE_KEY = random.nextLong();
+        for (int roll = 1; roll < ROLL_KEYS.length; roll++) {
+            ROLL_KEYS[roll] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    public static long pieceKey(Player player, int square) {
+        return PIECE_KEYS[player.getId()][square];
+    }
+
+    /** Key toggled when BLACK is to move */
+    public static long sideKey() {
+        return SIDE_KEY;
+    }
+
+    /** Key mixed into a position hash to tell apart nodes that follow a known roll */
+    public static long rollKey(int roll) {
+        return ROLL_KEYS[roll];
+    }
+
+    /**
+     * Hash a packed position from scratch
+     */
+    public static long hash(long bits) {
+        long h = 0;
+        for (int m = BitBoard.whiteMask(bits); m != 0; m &= m - 1) {
+            h ^= PIECE_KEYS[0][BitBoard.lowestSquare(m)];
+        }
+        for (int m = BitBoard.blackMask(bits); m != 0; m &= m - 1) {
+            h ^= PIECE_KEYS[1][BitBoard.lowestSquare(m)];
+        }
+        if (BitBoard.sideToMove(bits) == Player.BLACK) {
+            h ^= SIDE_KEY;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,197 @@
+package tools;
+
+import computer.ChanceApproximation;
+import computer.Expectiminimax;
+import computer.GameResult;
+import computer.Heuristic;
+import computer.SearchBudget;
+import game.GameRules;
+import game.SticksManager;
+import models.GameState;
+import models.Player;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Error of approximate chance nodes (computer.ChanceApproximation) against
+ * the exact search. Every position is searched exactly and with each
+ * approximation to the same depth, with a cleared table each time, and per
+ * approximation the tool reports:
+ *
+ *   nodes, ms    total effort, and as a fraction of the exact search's
+ *   |error|      mean and maximum difference of the root value
+ *   same move    how often it picks the exact search's move
+ *   move loss    mean exact value given up by its move: exact value of the
+ *                exact search's move minus that of the approximate one
+ *
+ * Positions are midgame positions reached by seeded random play, each
+ * with a roll that leaves a choice, so runs are repeatable.
+ *
+ * Usage: java -cp bin tools.ApproximationError [options]
+ *   --depth d          search depth (default 5)
+ *   --positions n      positions to search (default 40)
+ *   --seed n           position seed (default 1)
+ *   --weights w        heuristic weights, exited:advancement:safety:special
+ *   --epsilon e        add a probability cutoff setting (repeatable)
+ *   --sample ply:n     add a roll sampling setting (repeatable)
+ * Without --epsilon or --sample, a default set of settings is measured.
+ */
+public class ApproximationError {
+    private static final int MIDGAME_PLIES = 40;
+
+    /**
+     * The engines of one setting, one per side to move since an engine
+     * searches for a fixed player. They are reused for every position,
+     * with the table cleared, rather than allocating a table per search.
+     */
+    private static class Engines {
+        private final Heuristic heuristic;
+        private final ChanceApproximation approximation;
+        private final Expectiminimax[] bySide = new Expectiminimax[Player.values().length];
+
+        Engines(Heuristic heuristic, ChanceApproximation approximation) {
+            this.heuristic = heuristic;
+            this.approximation = approximation;
+        }
+
+        /**
+         * The engine for the side to move in a position, with an empty table
+         */
+        Expectiminimax forPosition(GameState position) {
+            Player player = position.getCurrentPlayer();
+            Expectiminimax engine = bySide[player.getId()];
+            if (engine == null) {
+                engine = new Expectiminimax(player, false);
+                engine.setHeuristic(heuristic);
+                engine.setChanceApproximation(approximation);
+                bySide[player.getId()] = engine;
+            } else {
+                engine.getTable().clear();
+            }
+            return engine;
+        }
+    }
+
+    /**
+     * Totals of one approximation over all positions
+     */
+    private static class Totals {
+        final ChanceApproximation approximation;
+        final Engines engines;
+        long nodes;
+        double millis;
+        double errorSum;
+        double errorMax;
+        int sameMove;
+        double moveLoss;
+
+        Totals(ChanceApproximation approximation, Heuristic heuristic) {
+            this.approximation = approximation;
+            this.engines = new Engines(heuristic, approximation);
+        }
+    }
+
+    public static void main(String[] args) {
+        int depth = 5;
+        int positionCount = 40;
+        long seed = 1L;
+        Heuristic heuristic = Heuristic.DEFAULT;
+        List<ChanceApproximation> settings = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--positions": positionCount = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--weights": heuristic = Heuristic.parse(args[++i]); break;
+                case "--epsilon": settings.add(ChanceApproximation.cutoff(Double.parseDouble(args[++i]))); break;
+                case "--sample": {
+                    String[] parts = args[++i].split(":");
+                    settings.add(ChanceApproximation.sampling(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])));
+                    break;
+                }
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        if (settings.isEmpty()) {
+            settings.add(ChanceApproximation.cutoff(0.001));
+            settings.add(ChanceApproximation.cutoff(0.01));
+            settings.add(ChanceApproximation.cutoff(0.03));
+            settings.add(ChanceApproximation.sampling(3, 3));
+            settings.add(ChanceApproximation.sampling(2, 3));
+            settings.add(new ChanceApproximation(0.01, 3, 3));
+        }
+
+        Random random = new Random(seed);
+        List<GameState> positions = new ArrayList<>();
+        List<Integer> rolls = new ArrayList<>();
+        while (positions.size() < positionCount) {
+            GameState position = RandomPositions.play(random, MIDGAME_PLIES);
+            int roll = SticksManager.throwSticks(random);
+            if (position != null && GameRules.getLegalMoves(position, roll).size() > 1) {
+                positions.add(position);
+                rolls.add(roll);
+            }
+        }
+
+        System.out.printf("Approximate chance nodes against exact search at depth %d, %d positions%n",
+                          depth, positions.size());
+
+        List<Totals> totals = new ArrayList<>();
+        for (ChanceApproximation approximation : settings) {
+            totals.add(new Totals(approximation, heuristic));
+        }
+        Engines exactEngines = new Engines(heuristic, ChanceApproximation.EXACT);
+
+        // Warm up the JIT so the first exact searches are not penalised
+        for (int p = 0; p < positions.size(); p++) {
+            exactEngines.forPosition(positions.get(p))
+                        .search(positions.get(p).clone(), rolls.get(p), SearchBudget.depth(Math.max(1, depth - 1)));
+        }
+        long exactNodes = 0;
+        double exactMillis = 0;
+        for (int p = 0; p < positions.size(); p++) {
+            GameState position = positions.get(p);
+            int roll = rolls.get(p);
+
+            Expectiminimax exact = exactEngines.forPosition(position);
+            long start = System.nanoTime();
+            GameResult reference = exact.search(position.clone(), roll, SearchBudget.depth(depth));
+            exactMillis += (System.nanoTime() - start) / 1e6;
+            exactNodes += exact.getStats().getNodesExplored();
+
+            for (Totals total : totals) {
+                Expectiminimax engine = total.engines.forPosition(position);
+                start = System.nanoTime();
+                GameResult result = engine.search(position.clone(), roll, SearchBudget.depth(depth));
+                total.millis += (System.nanoTime() - start) / 1e6;
+                total.nodes += engine.getStats().getNodesExplored();
+
+                double error = Math.abs(result.getValue() - reference.getValue());
+                total.errorSum += error;
+                total.errorMax = Math.max(total.errorMax, error);
+                if (result.getBestMove().equals(reference.getBestMove())) {
+                    total.sameMove++;
+                } else {
+                    Expectiminimax judge = exactEngines.forPosition(position);
+                    total.moveLoss += reference.getValue() - judge.searchMove(position, result.getBestMove(), depth);
+                }
+            }
+        }
+
+        int n = positions.size();
+        System.out.printf("%n%-36s %12s %7s %10s %7s %11s %11s %10s %10s%n",
+                          "approximation", "nodes", "", "ms", "", "mean |err|", "max |err|", "same move", "move loss");
+        System.out.printf("%-36s %12d %7s %10.1f %7s %11s %11s %10s %10s%n",
+                          "exact", exactNodes, "", exactMillis, "", "-", "-", "-", "-");
+        for (Totals total : totals) {
+            System.out.printf("%-36s %12d %6.1f%% %10.1f %6.1f%% %11.2f %11.2f %9.1f%% %10.3f%n",
+                              total.approximation, total.nodes, 100.0 * total.nodes / exactNodes,
+                              total.millis, 100.0 * total.millis / exactMillis,
+                              total.errorSum / n, total.errorMax,
+                              100.0 * total.sameMove / n, total.moveLoss / n);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package tools;
+
+import computer.EndgameIndex;
+import computer.EndgameTable;
+import game.GameRules;
+import game.RuleTable;
+import game.SticksManager;
+import models.BitBoard;
+import models.GameState;
+import models.Player;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Solves every position with up to a given number of pieces per side and
+ * writes the result as an endgame table (see computer.EndgameTable).
+ *
+ * A piece that fails to exit or lands on the Water goes back to the
+ * House of Rebirth, so positions can repeat and a backward pass from the
+ * finished games never terminates. Instead each block of positions with
+ * the same piece counts is solved by value iteration: starting from 1/2,
+ * every position's win probability is recomputed from the values of its
+ * successors, weighted by the stick roll probabilities, until no value
+ * changes by more than epsilon. Blocks are solved in order of increasing
+ * piece count, so the blocks a move can lead to with a piece fewer are
+ * already exact. An iteration reads the previous iteration's values only,
+ * so positions are updated in parallel and the result doesn't depend on
+ * the thread count.
+ *
+ * Usage: java -cp bin tools.EndgameGenerator [options] pieces file
+ *   pieces            maximum pieces per side, 1 to 3 (3 takes about 1 GB
+ *                     of heap and gives an 82 MB file)
+ *   --threads n       worker threads (default: all processors)
+ *   --epsilon e       convergence threshold (default 1e-6)
+ *   --rules file      solve a house-rule variant (see game.RuleTable)
+ */
+public class EndgameGenerator {
+
+    private static final int MAX_ITERATIONS = 100_000;
+
+    // Masks with k pieces in colex order, so MASKS[k][rank] inverts EndgameIndex.colexRank()
+    private static final int[][] MASKS = new int[EndgameIndex.MAX_PIECES + 1][];
+
+    static {
+        for (int k = 1; k <= EndgameIndex.MAX_PIECES; k++) {
+            MASKS[k] = new int[EndgameIndex.masks(k)];
+            int mask = EndgameIndex.firstMask(k);
+            for (int rank = 0; rank < MASKS[k].length; rank++, mask = EndgameIndex.nextMask(mask)) {
+                MASKS[k][rank] = mask;
+            }
+        }
+    }
+
+    private static final double[] ROLL_PROBABILITY = new double[6];
+
+    static {
+        for (int roll : SticksManager.getAllPossibleRolls()) {
+            ROLL_PROBABILITY[roll] = SticksManager.getProbability(roll);
+        }
+    }
+
+    private final EndgameIndex index;
+    private final float[] values;
+    private final double epsilon;
+    private final ForkJoinPool pool;
+
+    EndgameGenerator(int maxPieces, double epsilon, int threads) {
+        this.index = new EndgameIndex(maxPieces);
+        this.values = new float[Math.toIntExact(index.size())];
+        this.epsilon = epsilon;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Solve all blocks; returns the values indexed by EndgameIndex
+     */
+    float[] solve() {
+        int maxPieces = index.getMaxPieces();
+        try {
+            for (int total = 2; total <= 2 * maxPieces; total++) {
+                for (int white = 1; white <= maxPieces; white++) {
+                    int black = total - white;
+                    if (black >= 1 && black <= maxPieces) {
+                        solveBlock(white, black);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return values;
+    }
+
+    private void solveBlock(int white, int black) {
+        long start = System.nanoTime();
+        int blockStart = (int) index.blockStart(white, black);
+        int blockSize = (int) EndgameIndex.blockSize(white, black);
+        float[] next = new float[blockSize];
+        for (int i = 0; i < blockSize; i++) {
+            values[blockStart + i] = 0.5f;
+        }
+
+        int iterations = 0;
+        double change;
+        do {
+            change = pool.invoke(new SweepTask(white, black, 0, EndgameIndex.masks(white), next));
+            System.arraycopy(next, 0, values, blockStart, blockSize);
+            iterations++;
+        } while (change > epsilon && iterations < MAX_ITERATIONS);
+
+        System.out.printf("  %d v %d pieces: %,d positions, %d iterations (last change %.1e), %d ms%n",
+                          white, black, blockSize, iterations, change,
+                          (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * One value iteration sweep over the positions of a block whose white
+     * mask has a rank in [from, to); returns the largest change
+     */
+    private class SweepTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        private static final int SPLIT = 16;
+
+        private final int white;
+        private final int black;
+        private final int from;
+        private final int to;
+        private final float[] next;
+
+        SweepTask(int white, int black, int from, int to, float[] next) {
+            this.white = white;
+            this.black = black;
+            this.from = from;
+            this.to = to;
+            this.next = next;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > SPLIT) {
+                int middle = (from + to) >>> 1;
+                SweepTask left = new SweepTask(white, black, from, middle, next);
+                left.fork();
+                double right = new SweepTask(white, black, middle, to, next).compute();
+                return Math.max(left.join(), right);
+            }
+
+            int blockStart = (int) index.blockStart(white, black);
+            GameState state = new GameState();
+            int[] moves = new int[BitBoard.PIECES_PER_PLAYER];
+            double change = 0.0;
+            for (int whiteRank = from; whiteRank < to; whiteRank++) {
+                int whiteMask = MASKS[white][whiteRank];
+                int[] blackMasks = MASKS[black];
+                for (int blackRank = 0; blackRank < blackMasks.length; blackRank++) {
+                    int blackMask = blackMasks[blackRank];
+                    if ((whiteMask & blackMask) != 0) {
+                        continue;
+                    }
+                    int slot = 2 * (whiteRank * blackMasks.length + blackRank);
+                    for (Player side : Player.values()) {
+                        long bits = BitBoard.pack(whiteMask, blackMask, side);
+                        int local = slot + (side == Player.BLACK ? 1 : 0);
+                        float value = (float) backup(state, bits, moves);
+                        change = Math.max(change, Math.abs(value - values[blockStart + local]));
+                        next[local] = value;
+                    }
+                }
+            }
+            return change;
+        }
+    }
+
+    /**
+     * Win probability of the side to move given the current values of the
+     * successors: the expectation over the rolls of the best move's value
+     */
+    private double backup(GameState state, long bits, int[] moves) {
+        state.setBits(bits);
+        double expected = 0.0;
+        for (int roll = 1; roll < ROLL_PROBABILITY.length; roll++) {
+            int count = GameRules.generateMoves(state, roll, moves);
+            double best;
+            if (count == 0) {
+                // Skipped turn
+                best = 1.0 - values[(int) index.index(BitBoard.switchSide(bits))];
+            } else {
+                best = 0.0;
+                for (int i = 0; i < count && best < 1.0; i++) {
+                    GameRules.makeMove(state, moves[i]);
+                    double value = state.isGameOver()
+                            ? 1.0
+                            : 1.0 - values[(int) index.index(BitBoard.switchSide(state.getBits()))];
+                    GameRules.unmakeMove(state);
+                    best = Math.max(best, value);
+                }
+            }
+            expected += ROLL_PROBABILITY[roll] * best;
+        }
+        return expected;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        double epsilon = 1e-6;
+        String rulesFile = null;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--epsilon": epsilon = Double.parseDouble(args[++i]); break;
+                case "--rules": rulesFile = args[++i]; break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        System.out.println("Unknown option " + args[i]);
+                        return;
+                    }
+                    positional.add(args[i]);
+            }
+        }
+        if (positional.size() != 2) {
+            System.out.println("Usage: java -cp bin tools.EndgameGenerator [--threads n] [--epsilon e] "
+                    + "[--rules file] pieces file");
+            return;
+        }
+        if (rulesFile != null) {
+            GameRules.setRuleTable(RuleTable.load(Paths.get(rulesFile)));
+        }
+
+        int maxPieces = Integer.parseInt(positional.get(0));
+        Path path = Paths.get(positional.get(1));
+        long start = System.nanoTime();
+        EndgameGenerator generator = new EndgameGenerator(maxPieces, epsilon, threads);
+        System.out.printf("Solving positions with up to %d pieces per side (%,d slots) on %d threads%n",
+                          maxPieces, generator.index.size(), threads);
+        float[] values = generator.solve();
+        EndgameTable.write(path, generator.index, GameRules.getRuleTable().signature(), values);
+        System.out.printf("Wrote %s in %.1f s%n", path, (System.nanoTime() - start) / 1e9);
+    }
+}
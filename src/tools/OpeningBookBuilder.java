@@ -0,0 +1,186 @@
+package tools;
+
+import computer.Expectiminimax;
+import computer.Heuristic;
+import computer.OpeningBook;
+import computer.SearchBudget;
+import game.GameRules;
+import game.RuleTable;
+import models.GameState;
+import models.Move;
+import models.Player;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds an opening book (see computer.OpeningBook): every position
+ * reachable from the starting position in the first plies, with every
+ * roll, searched to a fixed depth. All moves of both sides are followed,
+ * so the book covers the opening whichever side the engine plays and
+ * whatever its opponent does. Positions with a single legal move are
+ * left out, there is nothing to look up.
+ *
+ * Usage: java -cp bin tools.OpeningBookBuilder [options] file
+ *   --plies n     plies from the start to cover (default 3)
+ *   --depth d     search depth (default 8)
+ *   --threads n   positions searched at the same time (default: processors)
+ *   --weights w   heuristic weights, exited:advancement:safety:special
+ *   --rules file  build for a house-rule variant (see game.RuleTable)
+ *
+ * Three plies at depth 8 are about 2,400 searches of several seconds
+ * each; two plies are about 120.
+ *
+ * Build with weights where a deeper search plays better, e.g. --weights
+ * 200:5:2:10. With Heuristic.DEFAULT deeper searches avoid exiting and lose
+ * to shallow ones, so their book moves are no better than a live search.
+ * The book covers too few of a game's moves to change match results either
+ * way; what it saves is the search time of the opening moves.
+ */
+public class OpeningBookBuilder {
+
+    /**
+     * A position and roll to search
+     */
+    private static class BookSearch {
+        final GameState state;
+        final int roll;
+
+        BookSearch(GameState state, int roll) {
+            this.state = state;
+            this.roll = roll;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int plies = 3;
+        int depth = 8;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Heuristic heuristic = Heuristic.DEFAULT;
+        String rulesFile = null;
+        String output = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plies": plies = Integer.parseInt(args[++i]); break;
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--weights": heuristic = Heuristic.parse(args[++i]); break;
+                case "--rules": rulesFile = args[++i]; break;
+                default:
+                    if (args[i].startsWith("--") || output != null) {
+                        System.out.println("Unknown option " + args[i]);
+                        return;
+                    }
+                    output = args[i];
+            }
+        }
+        if (output == null) {
+            System.out.println("Usage: java -cp bin tools.OpeningBookBuilder [--plies n] [--depth d] "
+                    + "[--threads n] [--weights w] [--rules file] file");
+            return;
+        }
+        if (rulesFile != null) {
+            GameRules.setRuleTable(RuleTable.load(Paths.get(rulesFile)));
+        }
+
+        // Positions to search, ply by ply
+        List<GameState> positions = new ArrayList<>();
+        Set<Long> frontier = new LinkedHashSet<>();
+        frontier.add(new GameState().getBits());
+        for (int ply = 0; ply < plies; ply++) {
+            Set<Long> next = new LinkedHashSet<>();
+            for (long bits : frontier) {
+                GameState state = new GameState(bits);
+                positions.add(state);
+                for (int roll = 1; roll <= 5; roll++) {
+                    List<Move> moves = GameRules.getLegalMoves(state, roll);
+                    if (moves.isEmpty()) {
+                        GameState skipped = state.clone();
+                        skipped.switchPlayer();
+                        next.add(skipped.getBits());
+                    }
+                    for (Move move : moves) {
+                        GameState child = GameRules.applyMove(state, move);
+                        if (!child.isGameOver()) {
+                            child.switchPlayer();
+                            next.add(child.getBits());
+                        }
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        List<BookSearch> searches = new ArrayList<>();
+        for (GameState state : positions) {
+            for (int roll = 1; roll <= 5; roll++) {
+                if (GameRules.getLegalMoves(state, roll).size() > 1) {
+                    searches.add(new BookSearch(state, roll));
+                }
+            }
+        }
+        System.out.printf("%d positions in %d plies, %d searches at depth %d on %d threads%n",
+                          positions.size(), plies, searches.size(), depth, threads);
+
+        // One engine per thread and side, so each keeps its transposition table
+        Heuristic weights = heuristic;
+        ThreadLocal<Expectiminimax[]> engines = ThreadLocal.withInitial(() -> {
+            Expectiminimax[] pair = new Expectiminimax[2];
+            for (Player player : Player.values()) {
+                pair[player.getId()] = new Expectiminimax(player, false);
+                pair[player.getId()].setHeuristic(weights);
+            }
+            return pair;
+        });
+
+        Map<Long, Integer> book = new ConcurrentHashMap<>();
+        AtomicInteger done = new AtomicInteger();
+        SearchBudget budget = SearchBudget.depth(depth);
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> running = new ArrayList<>();
+        for (BookSearch search : searches) {
+            running.add(pool.submit(() -> {
+                GameState state = search.state;
+                Expectiminimax engine = engines.get()[state.getCurrentPlayer().getId()];
+                Move best = engine.getBestMove(state.clone(), search.roll, budget);
+                book.put(OpeningBook.key(state, search.roll), best.getCode());
+                int finished = done.incrementAndGet();
+                if (finished % 10 == 0 || finished == searches.size()) {
+                    System.out.printf("  %d / %d searched (%.0f s)%n", finished, searches.size(),
+                                      (System.nanoTime() - start) / 1e9);
+                }
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Book search failed", e.getCause());
+        }
+
+        long[] keys = new long[book.size()];
+        int[] moves = new int[book.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : book.entrySet()) {
+            keys[i] = entry.getKey();
+            moves[i++] = entry.getValue();
+        }
+        Path path = Paths.get(output);
+        OpeningBook.write(path, GameRules.getRuleTable().signature(), keys, moves);
+        System.out.printf("Wrote %d entries to %s in %.1f s%n", keys.length, path, (System.nanoTime() - start) / 1e9);
+    }
+}
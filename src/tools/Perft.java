@@ -0,0 +1,375 @@
+package tools;
+
+import game.GameRules;
+import game.ReferenceRules;
+import models.BitBoard;
+import models.GameState;
+import models.Move;
+import models.Player;
+import models.Zobrist;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft for Senet: walks the full game tree to a depth, every stick roll at
+ * every ply, and counts what happens along the way. Two generators that
+ * agree on every count almost certainly agree on the rules; the
+ * differential mode checks that move by move.
+ *
+ * Usage: java -cp bin tools.Perft [--diff] [--threads n] depth [position]
+ *        java -cp bin tools.Perft --check [--threads n]
+ *   position   GameState notation, e.g. "WBWBWBWBWBWBWB................ w"
+ *              (default: the initial position)
+ *   --diff     compare GameRules against ReferenceRules instead of counting
+ *              and report the first position and roll where they differ
+ *   --check    count the reference positions below and run --diff on them;
+ *              exits with status 1 on any difference
+ *   --threads  worker threads for counting (default: all processors)
+ */
+public class Perft {
+
+    // Plies near the root that are split into parallel tasks
+    private static final int SPLIT_PLIES = 2;
+
+    // Known counts for --check: name, position, perft depth, the counts at
+    // that depth (leaves, moves, swaps, exits, water, failed exits, skipped,
+    // wins) and the depth of the differential check. Only a deliberate rule
+    // change may change them.
+    private static final Reference[] REFERENCES = {
+        new Reference("initial", "WBWBWBWBWBWBWB................ w", 5,
+                      new long[] {7574681, 7906848, 5033553, 0, 0, 0, 0, 0}, 4),
+        new Reference("midgame", ".........BWWBBW..B.W.WWBBW.... w", 5,
+                      new long[] {3550833, 3723235, 1824374, 162868, 84727, 89304, 160, 0}, 4),
+        new Reference("endgame", "......................B..WB.W. b", 7,
+                      new long[] {1206964, 1190046, 78242, 204703, 38356, 153956, 236026, 54475}, 6),
+    };
+
+    private static class Reference {
+        final String name;
+        final String position;
+        final int depth;
+        final long[] counts;
+        final int diffDepth;
+
+        Reference(String name, String position, int depth, long[] counts, int diffDepth) {
+            this.name = name;
+            this.position = position;
+            this.depth = depth;
+            this.counts = counts;
+            this.diffDepth = diffDepth;
+        }
+    }
+
+    /**
+     * Counts of one perft run. A ply is a stick roll followed by a move
+     * (or a skipped turn); leaves are the positions at the final depth
+     * plus finished games.
+     */
+    public static class Counts {
+        public long leaves;
+        public long moves;
+        public long swaps;
+        public long exits;
+        public long waterRelocations;
+        public long failedExits;
+        public long skippedTurns;
+        public long wins;
+
+        void add(Counts other) {
+            leaves += other.leaves;
+            moves += other.moves;
+            swaps += other.swaps;
+            exits += other.exits;
+            waterRelocations += other.waterRelocations;
+            failedExits += other.failedExits;
+            skippedTurns += other.skippedTurns;
+            wins += other.wins;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Counts)) return false;
+            Counts c = (Counts) o;
+            return leaves == c.leaves && moves == c.moves && swaps == c.swaps && exits == c.exits
+                    && waterRelocations == c.waterRelocations && failedExits == c.failedExits
+                    && skippedTurns == c.skippedTurns && wins == c.wins;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(leaves * 31 + moves);
+        }
+
+        long[] toArray() {
+            return new long[] {leaves, moves, swaps, exits, waterRelocations, failedExits, skippedTurns, wins};
+        }
+    }
+
+    /**
+     * Count and diff the reference positions
+     * @return description of the first difference, or null if there is none
+     */
+    public static String check(int threads) {
+        for (Reference reference : REFERENCES) {
+            GameState root = GameState.fromNotation(reference.position);
+            long[] counts = perft(root, reference.depth, threads).toArray();
+            if (!Arrays.equals(counts, reference.counts)) {
+                return reference.name + " (" + reference.position + ") depth " + reference.depth
+                        + ": counts " + Arrays.toString(counts) + ", expected " + Arrays.toString(reference.counts);
+            }
+            String difference = differential(root, reference.diffDepth);
+            if (difference != null) {
+                return reference.name + ": " + difference;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count the tree below a position with the given number of threads
+     */
+    public static Counts perft(GameState state, int depth, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new PerftTask(state.clone(), depth, SPLIT_PLIES));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Subtree count; the top SPLIT_PLIES plies fan out into parallel tasks,
+     * below that one task walks its subtree in place with make/unmake
+     */
+    private static class PerftTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        private final GameState state;
+        private final int depth;
+        private final int splitPlies;
+
+        PerftTask(GameState state, int depth, int splitPlies) {
+            this.state = state;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+        }
+
+        @Override
+        protected Counts compute() {
+            Counts counts = new Counts();
+            if (splitPlies == 0 || depth == 0 || state.isGameOver()) {
+                count(state, depth, counts, new int[depth + 1][BitBoard.PIECES_PER_PLAYER]);
+                return counts;
+            }
+
+            List<PerftTask> children = new ArrayList<>();
+            int[] moves = new int[BitBoard.PIECES_PER_PLAYER];
+            for (int roll = 1; roll <= 5; roll++) {
+                int count = GameRules.generateMoves(state, roll, moves);
+                if (count == 0) {
+                    counts.skippedTurns++;
+                    GameState child = state.clone();
+                    child.switchPlayer();
+                    children.add(new PerftTask(child, depth - 1, splitPlies - 1));
+                    continue;
+                }
+                for (int i = 0; i < count; i++) {
+                    GameState child = state.clone();
+                    GameRules.makeMove(child, moves[i]);
+                    classify(child, moves[i], state.getCurrentPlayer(), counts);
+                    child.switchPlayer();
+                    children.add(new PerftTask(child, depth - 1, splitPlies - 1));
+                }
+            }
+            invokeAll(children);
+            for (PerftTask child : children) {
+                counts.add(child.join());
+            }
+            return counts;
+        }
+    }
+
+    private static void count(GameState state, int depth, Counts counts, int[][] buffers) {
+        if (depth == 0 || state.isGameOver()) {
+            counts.leaves++;
+            return;
+        }
+        int[] moves = buffers[depth];
+        Player mover = state.getCurrentPlayer();
+        for (int roll = 1; roll <= 5; roll++) {
+            int count = GameRules.generateMoves(state, roll, moves);
+            if (count == 0) {
+                counts.skippedTurns++;
+                state.switchPlayer();
+                count(state, depth - 1, counts, buffers);
+                state.switchPlayer();
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                GameRules.makeMove(state, moves[i]);
+                classify(state, moves[i], mover, counts);
+                state.switchPlayer();
+                count(state, depth - 1, counts, buffers);
+                GameRules.unmakeMove(state);
+            }
+        }
+    }
+
+    /**
+     * Count a move just made; the state is the position after it
+     */
+    private static void classify(GameState after, int move, Player mover, Counts counts) {
+        counts.moves++;
+        if (Move.isExit(move)) {
+            counts.exits++;
+            if (after.isGameOver()) {
+                counts.wins++;
+            }
+        } else if (Move.isSwap(move)) {
+            counts.swaps++;
+        } else if (Move.toOf(move) < Move.fromOf(move)) {
+            counts.failedExits++;
+        } else if (after.getPieceAt(Move.toOf(move)) != mover) {
+            counts.waterRelocations++;
+        }
+    }
+
+    /**
+     * Walk the tree comparing GameRules with ReferenceRules: the legal
+     * moves for every roll, the position after every move, and the
+     * incrementally kept hash and square sums
+     * @return description of the first difference, or null if there is none
+     */
+    public static String differential(GameState root, int depth) {
+        return differential(root.clone(), depth, new int[depth + 1][BitBoard.PIECES_PER_PLAYER]);
+    }
+
+    private static String differential(GameState state, int depth, int[][] buffers) {
+        if (depth == 0 || state.isGameOver()) {
+            return null;
+        }
+        int[] moves = buffers[depth];
+        Player mover = state.getCurrentPlayer();
+        for (int roll = 1; roll <= 5; roll++) {
+            int count = GameRules.generateMoves(state, roll, moves);
+            int[] fast = Arrays.copyOf(moves, count);
+            List<Move> referenceMoves = ReferenceRules.getLegalMoves(state, roll);
+            int[] reference = new int[referenceMoves.size()];
+            for (int i = 0; i < reference.length; i++) {
+                reference[i] = referenceMoves.get(i).getCode();
+            }
+            Arrays.sort(fast);
+            Arrays.sort(reference);
+            if (!Arrays.equals(fast, reference)) {
+                return "Position " + state.toNotation() + ", roll " + roll
+                        + ": GameRules " + describe(fast, mover) + ", ReferenceRules " + describe(reference, mover);
+            }
+
+            if (count == 0) {
+                state.switchPlayer();
+                String difference = differential(state, depth - 1, buffers);
+                state.switchPlayer();
+                if (difference != null) return difference;
+                continue;
+            }
+            for (int move : reference) {
+                Move referenceMove = Move.of(move, mover);
+                long expected = ReferenceRules.applyMove(state, referenceMove).getBits();
+                GameRules.makeMove(state, move);
+                String problem = null;
+                if (state.getBits() != expected) {
+                    problem = "GameRules gives " + state.toNotation()
+                            + ", ReferenceRules " + new GameState(expected).toNotation();
+                } else if (state.getHash() != Zobrist.hash(state.getBits())) {
+                    problem = "incremental hash is wrong";
+                } else if (state.getSquareSum(Player.WHITE) != new GameState(expected).getSquareSum(Player.WHITE)
+                        || state.getSquareSum(Player.BLACK) != new GameState(expected).getSquareSum(Player.BLACK)) {
+                    problem = "incremental square sums are wrong";
+                }
+                GameRules.unmakeMove(state);
+                if (problem != null) {
+                    return "Position " + state.toNotation() + ", roll " + roll + ", " + referenceMove + ": " + problem;
+                }
+
+                GameRules.makeMove(state, move);
+                state.switchPlayer();
+                String difference = differential(state, depth - 1, buffers);
+                GameRules.unmakeMove(state);
+                if (difference != null) return difference;
+            }
+        }
+        return null;
+    }
+
+    private static String describe(int[] moves, Player player) {
+        List<Move> list = new ArrayList<>();
+        for (int move : moves) {
+            list.add(Move.of(move, player));
+        }
+        return list.toString();
+    }
+
+    public static void main(String[] args) {
+        boolean diff = false;
+        boolean check = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            switch (args[i]) {
+                case "--diff": diff = true; break;
+                case "--check": check = true; break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        if (check) {
+            long start = System.nanoTime();
+            String difference = check(threads);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (difference != null) {
+                System.out.println("Perft check failed: " + difference);
+                System.exit(1);
+            }
+            System.out.println("Perft counts and GameRules/ReferenceRules agree on all reference positions ("
+                    + millis + " ms)");
+            return;
+        }
+        if (i >= args.length) {
+            System.out.println("Usage: java -cp bin tools.Perft [--diff] [--threads n] depth [position]");
+            System.out.println("       java -cp bin tools.Perft --check [--threads n]");
+            return;
+        }
+        int depth = Integer.parseInt(args[i++]);
+        GameState root = i < args.length
+                ? GameState.fromNotation(String.join(" ", Arrays.copyOfRange(args, i, args.length)))
+                : new GameState();
+
+        System.out.println("Position: " + root.toNotation());
+        if (diff) {
+            long start = System.nanoTime();
+            String difference = differential(root, depth);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println(difference == null
+                    ? "GameRules and ReferenceRules agree to depth " + depth + " (" + millis + " ms)"
+                    : "First difference: " + difference);
+            return;
+        }
+
+        System.out.printf("%5s %14s %14s %12s %12s %10s %10s %10s %8s %10s%n",
+                          "depth", "leaves", "moves", "swaps", "exits", "water", "failexit",
+                          "skipped", "wins", "ms");
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            Counts c = perft(root, d, threads);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("%5d %14d %14d %12d %12d %10d %10d %10d %8d %10d%n",
+                              d, c.leaves, c.moves, c.swaps, c.exits, c.waterRelocations,
+                              c.failedExits, c.skippedTurns, c.wins, millis);
+        }
+    }
+}
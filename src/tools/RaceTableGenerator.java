@@ -0,0 +1,176 @@
+package tools;
+
+import computer.EndgameIndex;
+import computer.RaceTable;
+import game.GameRules;
+import game.RuleTable;
+import game.SticksManager;
+import models.BitBoard;
+import models.GameState;
+import models.Player;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the turns-to-finish distributions of computer.RaceTable.
+ *
+ * A side racing alone plays to minimize its expected number of turns to
+ * bear off. Pieces sent back to rebirth make configurations repeat, so
+ * the expected turns are found by value iteration, layer by layer in order
+ * of increasing piece count (bearing a piece off moves to the layer
+ * below). With that policy fixed, P(finished within t turns) follows turn
+ * by turn from the values for t - 1 turns.
+ *
+ * Usage: java -cp bin tools.RaceTableGenerator [--rules file] pieces file
+ *   pieces    maximum pieces per side, 1 to 4 (4 gives a 32 MB file)
+ *   --rules   compute a house-rule variant (see game.RuleTable)
+ */
+public class RaceTableGenerator {
+
+    private static final double EPSILON = 1e-9;
+    private static final int MAX_ITERATIONS = 100_000;
+    private static final int FINISHED = -1;
+
+    private static final double[] ROLL_PROBABILITY = new double[6];
+
+    static {
+        for (int roll : SticksManager.getAllPossibleRolls()) {
+            ROLL_PROBABILITY[roll] = SticksManager.getProbability(roll);
+        }
+    }
+
+    private final int maxPieces;
+    private final int[] masks;        // configuration index -> mask
+    private final double[] expected;  // expected turns to finish
+    private final int[][] policy;     // [configuration][roll] -> configuration after the best move,
+                                      // FINISHED, or the configuration itself if there is no move
+
+    RaceTableGenerator(int maxPieces) {
+        if (maxPieces < 1 || maxPieces > RaceTable.MAX_PIECES) {
+            throw new IllegalArgumentException("Race piece count must be between 1 and " + RaceTable.MAX_PIECES);
+        }
+        this.maxPieces = maxPieces;
+        int count = RaceTable.configurations(maxPieces);
+        this.masks = new int[count];
+        this.expected = new double[count];
+        this.policy = new int[count][ROLL_PROBABILITY.length];
+        for (int k = 1; k <= maxPieces; k++) {
+            int mask = EndgameIndex.firstMask(k);
+            for (int rank = 0; rank < EndgameIndex.masks(k); rank++, mask = EndgameIndex.nextMask(mask)) {
+                masks[RaceTable.index(mask)] = mask;
+            }
+        }
+    }
+
+    /**
+     * Expected turns and the policy, layer by layer
+     */
+    void solveExpectedTurns() {
+        GameState state = new GameState();
+        int[] moves = new int[BitBoard.PIECES_PER_PLAYER];
+        for (int k = 1; k <= maxPieces; k++) {
+            int from = RaceTable.configurations(k - 1);
+            int to = RaceTable.configurations(k);
+            double[] next = new double[to - from];
+            int iterations = 0;
+            double change;
+            do {
+                change = 0.0;
+                for (int c = from; c < to; c++) {
+                    next[c - from] = backup(state, c, moves);
+                    change = Math.max(change, Math.abs(next[c - from] - expected[c]));
+                }
+                System.arraycopy(next, 0, expected, from, next.length);
+                iterations++;
+            } while (change > EPSILON && iterations < MAX_ITERATIONS);
+            System.out.printf("  %d pieces: %,d configurations, %d iterations%n", k, to - from, iterations);
+        }
+    }
+
+    /**
+     * One turn plus the expected turns after the best move for each roll;
+     * records the best moves in the policy
+     */
+    private double backup(GameState state, int configuration, int[] moves) {
+        state.setBits(BitBoard.pack(masks[configuration], 0, Player.WHITE));
+        double value = 1.0;
+        for (int roll = 1; roll < ROLL_PROBABILITY.length; roll++) {
+            int count = GameRules.generateMoves(state, roll, moves);
+            int best = configuration;
+            double bestTurns = expected[configuration];
+            for (int i = 0; i < count; i++) {
+                GameRules.makeMove(state, moves[i]);
+                int after = state.isGameOver() ? FINISHED : RaceTable.index(state.getOccupancy(Player.WHITE));
+                double turns = after == FINISHED ? 0.0 : expected[after];
+                GameRules.unmakeMove(state);
+                if (i == 0 || turns < bestTurns) {
+                    best = after;
+                    bestTurns = turns;
+                }
+            }
+            policy[configuration][roll] = best;
+            value += ROLL_PROBABILITY[roll] * bestTurns;
+        }
+        return value;
+    }
+
+    /**
+     * P(finished within t turns) under the policy, for t = 0 .. TURNS-1
+     */
+    float[][] distributions() {
+        int count = masks.length;
+        double[] previous = new double[count]; // within t - 1 turns; 0 for t = 0
+        float[][] cdf = new float[count][RaceTable.TURNS];
+        for (int t = 1; t < RaceTable.TURNS; t++) {
+            double[] current = new double[count];
+            for (int c = 0; c < count; c++) {
+                double p = 0.0;
+                for (int roll = 1; roll < ROLL_PROBABILITY.length; roll++) {
+                    int after = policy[c][roll];
+                    p += ROLL_PROBABILITY[roll] * (after == FINISHED ? 1.0 : previous[after]);
+                }
+                current[c] = p;
+                cdf[c][t] = (float) p;
+            }
+            previous = current;
+        }
+        return cdf;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String rulesFile = null;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rules": rulesFile = args[++i]; break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        System.out.println("Unknown option " + args[i]);
+                        return;
+                    }
+                    positional.add(args[i]);
+            }
+        }
+        if (positional.size() != 2) {
+            System.out.println("Usage: java -cp bin tools.RaceTableGenerator [--rules file] pieces file");
+            return;
+        }
+        if (rulesFile != null) {
+            GameRules.setRuleTable(RuleTable.load(Paths.get(rulesFile)));
+        }
+
+        int maxPieces = Integer.parseInt(positional.get(0));
+        Path path = Paths.get(positional.get(1));
+        long start = System.nanoTime();
+        RaceTableGenerator generator = new RaceTableGenerator(maxPieces);
+        System.out.printf("Race distributions for up to %d pieces (%,d configurations)%n",
+                          maxPieces, generator.masks.length);
+        generator.solveExpectedTurns();
+        float[][] cdf = generator.distributions();
+        RaceTable.write(path, maxPieces, GameRules.getRuleTable().signature(), cdf);
+        System.out.printf("Wrote %s in %.1f s%n", path, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,37 @@
+package tools;
+
+import game.GameRules;
+import game.SticksManager;
+import models.GameState;
+import models.Move;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Positions reached by seeded random play, shared by the benchmarks and
+ * checks so they draw from the same kind of position
+ */
+final class RandomPositions {
+
+    private RandomPositions() {
+    }
+
+    /**
+     * Play random legal moves from the initial position
+     * @return the position reached, or null if the game ended first
+     */
+    static GameState play(Random random, int plies) {
+        GameState state = new GameState();
+        for (int ply = 0; ply < plies; ply++) {
+            List<Move> moves = GameRules.getLegalMoves(state, SticksManager.throwSticks(random));
+            if (!moves.isEmpty()) {
+                state = GameRules.applyMove(state, moves.get(random.nextInt(moves.size())));
+                if (state.isGameOver()) {
+                    return null;
+                }
+            }
+            state.switchPlayer();
+        }
+        return state;
+    }
+}
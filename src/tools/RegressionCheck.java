@@ -0,0 +1,642 @@
+package tools;
+
+import computer.EndgameIndex;
+import computer.EndgameTable;
+import computer.Expectiminimax;
+import computer.GameResult;
+import computer.RaceTable;
+import computer.SearchBudget;
+import computer.TranspositionTable;
+import game.GameRules;
+import game.ReferenceRules;
+import game.RuleTable;
+import game.SticksManager;
+import models.BitBoard;
+import models.GameState;
+import models.Move;
+import models.Player;
+import models.Zobrist;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Self-checks for invariants that the engine relies on but that no game
+ * would show directly. Each check prints one line, PASS or FAIL with the
+ * first difference found; the exit status is 1 if any check failed.
+ * Positions come from seeded random play, so every run checks the same ones.
+ *
+ * Usage: java -cp bin tools.RegressionCheck [check ...] (default: all)
+ *   perft            Perft --check: known counts of three positions, and
+ *                    GameRules against ReferenceRules
+ *   make-unmake      makeMove() agrees with ReferenceRules and keeps the
+ *                    hash and square sums; unmakeMove() restores all of it,
+ *                    also a whole game taken back move by move
+ *   rule-table       RuleTable.compile() gives the standard table for an
+ *                    empty or spelled-out standard description, applies
+ *                    each variant key and rejects invalid descriptions
+ *   tt-packing       TranspositionTable entries read back as stored, bounds
+ *                    are only used where valid, replacement is
+ *                    depth-preferred between positions, and concurrent
+ *                    writers never produce a torn entry
+ *   parallel-chance  root values with setParallelChance(true) equal the
+ *                    sequential search
+ *   endgame-index    EndgameIndex numbers every covered position once,
+ *                    inside its block
+ *   endgame-table    a solved one-piece table is consistent with one
+ *                    turn of play (Bellman residual)
+ *   parallel-endgame parallel-chance with that table
+ *   parallel-race    parallel-chance with a two-piece race table
+ *   futility         root values with futility pruning equal those
+ *                    without, also next to a win
+ */
+public class RegressionCheck {
+    private static final long SEED = 1L;
+    // Largest error of a table value: the 16-bit quantisation plus the solver's epsilon
+    private static final double TABLE_TOLERANCE = 1e-4;
+
+    private static EndgameTable endgame;
+    private static RaceTable race;
+
+    public static void main(String[] args) {
+        Map<String, Supplier<String>> checks = new LinkedHashMap<>();
+        checks.put("perft", () -> Perft.check(Runtime.getRuntime().availableProcessors()));
+        checks.put("make-unmake", RegressionCheck::checkMakeUnmake);
+        checks.put("rule-table", RegressionCheck::checkRuleTable);
+        checks.put("tt-packing", RegressionCheck::checkTranspositionTable);
+        checks.put("parallel-chance", RegressionCheck::checkParallelChance);
+        checks.put("endgame-index", RegressionCheck::checkEndgameIndex);
+        checks.put("endgame-table", RegressionCheck::checkEndgameTable);
+        checks.put("parallel-endgame", RegressionCheck::checkParallelEndgame);
+        checks.put("parallel-race", RegressionCheck::checkParallelRace);
+        checks.put("futility", RegressionCheck::checkFutility);
+
+        List<String> names = args.length > 0 ? List.of(args) : new ArrayList<>(checks.keySet());
+        int failed = 0;
+        for (String name : names) {
+            Supplier<String> check = checks.get(name);
+            if (check == null) {
+                System.err.println("Unknown check " + name + "; checks: " + String.join(", ", checks.keySet()));
+                System.exit(2);
+            }
+            long start = System.nanoTime();
+            String failure = check.get();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (failure == null) {
+                System.out.printf("PASS %-18s (%d ms)%n", name, millis);
+            } else {
+                System.out.printf("FAIL %-18s %s%n", name, failure);
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays random games in place on one state. At every position each move
+     * of each roll is made and taken back; the game move is then kept, and
+     * at the end the whole game is taken back.
+     */
+    private static String checkMakeUnmake() {
+        Random random = new Random(SEED);
+        int[] moves = new int[BitBoard.PIECES_PER_PLAYER];
+        for (int game = 0; game < 100; game++) {
+            GameState state = new GameState();
+            List<long[]> history = new ArrayList<>();
+            for (int ply = 0; ply < 400 && !state.isGameOver(); ply++) {
+                long[] before = snapshot(state);
+                Player mover = state.getCurrentPlayer();
+                for (int roll = 1; roll <= 5; roll++) {
+                    int count = GameRules.generateMoves(state, roll, moves);
+                    for (int i = 0; i < count; i++) {
+                        long expected = ReferenceRules.applyMove(state, Move.of(moves[i], mover)).getBits();
+                        GameRules.makeMove(state, moves[i]);
+                        String problem = state.getBits() != expected ? "position differs from ReferenceRules"
+                                : state.getHash() != Zobrist.hash(state.getBits()) ? "hash is wrong"
+                                : !Arrays.equals(snapshot(state), snapshot(new GameState(expected)))
+                                        ? "square sums are wrong" : null;
+                        if (problem == null) {
+                            state.switchPlayer();
+                            GameRules.unmakeMove(state);
+                            if (!Arrays.equals(snapshot(state), before)) {
+                                problem = "unmakeMove() doesn't restore the position";
+                            }
+                        } else {
+                            GameRules.unmakeMove(state);
+                        }
+                        if (problem != null) {
+                            return String.format("%s roll %d, %s: %s", new GameState(before[0]).toNotation(),
+                                                 roll, Move.of(moves[i], mover), problem);
+                        }
+                    }
+                }
+
+                int count = GameRules.generateMoves(state, SticksManager.throwSticks(random), moves);
+                if (count > 0) {
+                    history.add(before);
+                    GameRules.makeMove(state, moves[random.nextInt(count)]);
+                }
+                state.switchPlayer();
+            }
+            for (int i = history.size() - 1; i >= 0; i--) {
+                GameRules.unmakeMove(state);
+                if (!Arrays.equals(snapshot(state), history.get(i))) {
+                    return "taking back game " + game + " at move " + i + " gives " + state.toNotation()
+                            + ", expected " + new GameState(history.get(i)[0]).toNotation();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiled rule descriptions. Moves under the standard table are checked
+     * against ReferenceRules by the perft check; this checks the compiler.
+     */
+    private static String checkRuleTable() {
+        long standard = RuleTable.standard().signature();
+        if (RuleTable.compile(new Properties()).signature() != standard) {
+            return "an empty description doesn't compile to the standard rules";
+        }
+        RuleTable spelledOut = compileRules("rebirth=15", "happiness=26", "water=27",
+                                            "exit.28=3", "exit.29=2", "exit.30=any");
+        if (spelledOut.signature() != standard) {
+            return "the standard description doesn't compile to the standard rules";
+        }
+
+        long rebirth = BitBoard.range(1, 15) & 0xFFFFFFFFL;
+        long exit = 1L << (BitBoard.BOARD_SIZE + 1);
+        // Each case: description, from, roll, occupant, expected destinations
+        Object[][] cases = {
+            {new String[0], 26, 1, RuleTable.EMPTY, rebirth},                 // into the water
+            {new String[] {"water=0"}, 26, 1, RuleTable.EMPTY, 1L << 27},
+            {new String[0], 23, 5, RuleTable.EMPTY, 0L},                      // passing happiness
+            {new String[] {"happiness=0"}, 23, 5, RuleTable.EMPTY, 1L << 28},
+            {new String[0], 28, 1, RuleTable.EMPTY, rebirth},                 // wrong exit roll
+            {new String[] {"exit.28=1,3"}, 28, 1, RuleTable.EMPTY, exit},
+            {new String[] {"exit.28=1,3"}, 30, 1, RuleTable.EMPTY, exit},     // past the board
+            {new String[] {"exit.28=1,3"}, 29, 4, RuleTable.EMPTY, exit},     // 29 lost its rule
+            {new String[] {"rebirth=10"}, 26, 1, RuleTable.EMPTY, BitBoard.range(1, 10) & 0xFFFFFFFFL},
+            {new String[0], 10, 3, RuleTable.OPPONENT, 1L << 13},             // swap
+            {new String[0], 10, 3, RuleTable.OWN, 0L},
+        };
+        for (Object[] c : cases) {
+            String[] description = (String[]) c[0];
+            RuleTable rules = compileRules(description);
+            long destinations = rules.destinations((int) c[1], (int) c[2], (int) c[3]);
+            if (destinations != (long) c[4]) {
+                return String.format("%s: from %d roll %d occupant %d gives %x, expected %x",
+                                     Arrays.toString(description), c[1], c[2], c[3], destinations, c[4]);
+            }
+        }
+
+        String[][] invalid = {
+            {"water=28"},              // also an exit square
+            {"exit.28=6"},
+            {"exit.31=any"},
+            {"rebirth=0"},
+            {"happiness=x"},
+        };
+        for (String[] description : invalid) {
+            try {
+                compileRules(description);
+                return Arrays.toString(description) + " was accepted";
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        return null;
+    }
+
+    private static RuleTable compileRules(String... lines) {
+        Properties rules = new Properties();
+        for (String line : lines) {
+            String[] kv = line.split("=", 2);
+            rules.setProperty(kv[0], kv[1]);
+        }
+        return RuleTable.compile(rules);
+    }
+
+    /**
+     * The packed data word, the bound semantics of usableValue(), the
+     * replacement rule and the check word that turns torn slots into misses
+     */
+    private static String checkTranspositionTable() {
+        Random random = new Random(SEED);
+        TranspositionTable table = new TranspositionTable(1);
+        for (int i = 0; i < 100_000; i++) {
+            table.clear();
+            long key = random.nextLong();
+            int depth = random.nextInt(256);
+            int bound = random.nextInt(3);
+            int bestFrom = random.nextInt(BitBoard.BOARD_SIZE + 1);
+            double value = (random.nextDouble() * 2 - 1) * 20000;
+            table.store(key, depth, bound, value, bestFrom);
+            long entry = table.probe(key);
+            if (TranspositionTable.depthOf(entry) != depth || TranspositionTable.boundOf(entry) != bound
+                    || TranspositionTable.bestMoveOf(entry) != bestFrom) {
+                return String.format("stored depth %d bound %d move %d, read back depth %d bound %d move %d",
+                                     depth, bound, bestFrom, TranspositionTable.depthOf(entry),
+                                     TranspositionTable.boundOf(entry), TranspositionTable.bestMoveOf(entry));
+            }
+            double exact = table.usableValue(key, depth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            double inWindow = table.usableValue(key, depth, value - 1, value + 1);
+            double failHigh = table.usableValue(key, depth, value - 2, value - 1);
+            double failLow = table.usableValue(key, depth, value + 1, value + 2);
+            boolean ok = bound == TranspositionTable.EXACT
+                    ? exact == value && inWindow == value
+                    : bound == TranspositionTable.LOWER
+                    ? Double.isNaN(inWindow) && failHigh == value && Double.isNaN(failLow)
+                    : Double.isNaN(inWindow) && Double.isNaN(failHigh) && failLow == value;
+            if (!ok || !Double.isNaN(table.usableValue(key, depth ^ 1, -1e9, 1e9))) {
+                return "usableValue() of a bound " + bound + " entry at depth " + depth + " is wrong";
+            }
+            if (table.probe(key + 2) != 0) {
+                return "another key with the same slot hits";
+            }
+        }
+
+        // Depth-preferred replacement between positions within a search, the
+        // same position is always updated, anything goes after newSearch()
+        table.clear();
+        long key = 5;
+        long other = key + 2;
+        table.store(key, 6, TranspositionTable.EXACT, 1.0);
+        table.store(other, 3, TranspositionTable.EXACT, 2.0);
+        if (table.probe(key) == 0 || table.probe(other) != 0) {
+            return "a shallower entry replaced a deeper one of the same search";
+        }
+        table.store(key, 2, TranspositionTable.EXACT, 3.0);
+        if (table.usableValue(key, 2, 0, 10) != 3.0) {
+            return "an entry of the same position wasn't updated";
+        }
+        table.store(key, 6, TranspositionTable.EXACT, 1.0);
+        table.newSearch();
+        table.store(other, 3, TranspositionTable.EXACT, 2.0);
+        if (table.probe(other) == 0) {
+            return "an entry of an earlier search wasn't replaced";
+        }
+
+        return checkConcurrentStores();
+    }
+
+    /**
+     * Two writers keep overwriting one slot with entries of 64 keys, each
+     * with its own depth, best move and value; a reader must never see a
+     * hit whose fields belong to another key
+     */
+    private static String checkConcurrentStores() {
+        TranspositionTable table = new TranspositionTable(2);
+        int keys = 64;
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            long seed = SEED + w;
+            Thread writer = new Thread(() -> {
+                Random random = new Random(seed);
+                while (!done.get()) {
+                    int k = 1 + random.nextInt(keys);
+                    // A new generation each time, so every store replaces the slot
+                    table.newSearch();
+                    table.store(slotZeroKey(k), k, TranspositionTable.EXACT, k * 1.5, k % 31);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+
+        String failure = null;
+        Random random = new Random(SEED);
+        long hits = 0;
+        long deadline = System.nanoTime() + 300_000_000L;
+        while (failure == null && System.nanoTime() < deadline) {
+            int k = 1 + random.nextInt(keys);
+            long entry = table.probe(slotZeroKey(k));
+            if (entry != 0) {
+                hits++;
+                if (TranspositionTable.depthOf(entry) != k || TranspositionTable.bestMoveOf(entry) != k % 31) {
+                    failure = "key " + k + " read back depth " + TranspositionTable.depthOf(entry)
+                            + " and move " + TranspositionTable.bestMoveOf(entry);
+                }
+            }
+            double value = table.usableValue(slotZeroKey(k), k, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            if (!Double.isNaN(value) && value != k * 1.5) {
+                failure = "key " + k + " read back value " + value;
+            }
+        }
+        done.set(true);
+        for (Thread writer : writers) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return failure != null || hits > 0 ? failure : "the reader never hit";
+    }
+
+    private static long slotZeroKey(int k) {
+        return (long) k << 20 | (long) k << 40;
+    }
+
+    /**
+     * Everything makeMove() changes and unmakeMove() must restore
+     */
+    private static long[] snapshot(GameState state) {
+        return new long[] {state.getBits(), state.getHash(),
+                           state.getSquareSum(Player.WHITE), state.getSquareSum(Player.BLACK)};
+    }
+
+    /**
+     * Splitting the opponent's roll layer into tasks must not change any
+     * root value
+     */
+    private static String checkParallelChance() {
+        Random random = new Random(SEED);
+        for (int p = 0; p < 20; p++) {
+            GameState position = RandomPositions.play(random, 10 + random.nextInt(60));
+            int roll = SticksManager.throwSticks(random);
+            if (position == null) {
+                continue;
+            }
+            String failure = compareParallelChance(position, roll, null, null);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every position with 1..3 pieces per side gets its own number, in the
+     * block of its piece counts
+     */
+    private static String checkEndgameIndex() {
+        EndgameIndex index = new EndgameIndex(EndgameIndex.MAX_PIECES);
+        BitSet used = new BitSet(Math.toIntExact(index.size()));
+        for (int white = 1; white <= EndgameIndex.MAX_PIECES; white++) {
+            for (int black = 1; black <= EndgameIndex.MAX_PIECES; black++) {
+                long from = index.blockStart(white, black);
+                long to = from + EndgameIndex.blockSize(white, black);
+                int whiteMask = EndgameIndex.firstMask(white);
+                for (int w = 0; w < EndgameIndex.masks(white); w++, whiteMask = EndgameIndex.nextMask(whiteMask)) {
+                    int blackMask = EndgameIndex.firstMask(black);
+                    for (int b = 0; b < EndgameIndex.masks(black); b++, blackMask = EndgameIndex.nextMask(blackMask)) {
+                        if ((whiteMask & blackMask) != 0) {
+                            continue;
+                        }
+                        for (Player side : Player.values()) {
+                            long bits = BitBoard.pack(whiteMask, blackMask, side);
+                            long number = index.index(bits);
+                            if (!index.covers(bits) || number < from || number >= to || used.get((int) number)) {
+                                return String.format("%s: number %d, block [%d, %d), covered %b, reused %b",
+                                                     new GameState(bits).toNotation(), number, from, to,
+                                                     index.covers(bits), number >= 0 && used.get((int) number));
+                            }
+                            used.set((int) number);
+                        }
+                    }
+                }
+            }
+        }
+        GameState tooMany = GameState.fromNotation("WWWW.........................B w");
+        if (index.covers(tooMany.getBits())) {
+            return "covers " + tooMany.toNotation();
+        }
+        return null;
+    }
+
+    /**
+     * Each position's win probability is the expectation over the rolls of
+     * its best move, with a skipped turn for a roll without moves
+     */
+    private static String checkEndgameTable() {
+        EndgameTable table;
+        try {
+            table = endgameTable();
+        } catch (IOException e) {
+            return "cannot build the table: " + e.getMessage();
+        }
+        for (int whiteMask = EndgameIndex.firstMask(1); whiteMask < 1 << BitBoard.BOARD_SIZE; whiteMask <<= 1) {
+            for (int blackMask = EndgameIndex.firstMask(1); blackMask < 1 << BitBoard.BOARD_SIZE; blackMask <<= 1) {
+                if (whiteMask == blackMask) {
+                    continue;
+                }
+                for (Player side : Player.values()) {
+                    GameState state = new GameState(BitBoard.pack(whiteMask, blackMask, side));
+                    double expected = 0.0;
+                    for (int roll : SticksManager.getAllPossibleRolls()) {
+                        expected += SticksManager.getProbability(roll) * bestMoveValue(table, state, roll);
+                    }
+                    double stored = table.winProbability(state);
+                    if (Math.abs(expected - stored) > TABLE_TOLERANCE) {
+                        return String.format("%s: table %.6f, one turn of play %.6f",
+                                             state.toNotation(), stored, expected);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Win probability of the side to move after its best move for the roll,
+     * read from the table
+     */
+    private static double bestMoveValue(EndgameTable table, GameState state, int roll) {
+        List<Move> moves = GameRules.getLegalMoves(state, roll);
+        if (moves.isEmpty()) {
+            GameState skipped = state.clone();
+            skipped.switchPlayer();
+            return 1.0 - table.winProbability(skipped);
+        }
+        double best = 0.0;
+        for (Move move : moves) {
+            GameState next = GameRules.applyMove(state, move);
+            if (next.isGameOver()) {
+                return 1.0;
+            }
+            next.switchPlayer();
+            best = Math.max(best, 1.0 - table.winProbability(next));
+        }
+        return best;
+    }
+
+    /**
+     * Parallel chance search in positions where the table decides most
+     * chance nodes
+     */
+    private static String checkParallelEndgame() {
+        EndgameTable table;
+        try {
+            table = endgameTable();
+        } catch (IOException e) {
+            return "cannot build the table: " + e.getMessage();
+        }
+        Random random = new Random(SEED);
+        for (int p = 0; p < 30; p++) {
+            String failure = compareParallelChance(sparsePosition(random, 2), SticksManager.throwSticks(random),
+                                                   table, null);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The one-piece endgame table, solved on first use into a temporary file
+     */
+    private static EndgameTable endgameTable() throws IOException {
+        if (endgame == null) {
+            EndgameIndex index = new EndgameIndex(1);
+            float[] values = new EndgameGenerator(1, 1e-6, 1).solve();
+            Path path = Files.createTempFile("senet-endgame", ".bin");
+            path.toFile().deleteOnExit();
+            EndgameTable.write(path, index, GameRules.getRuleTable().signature(), values);
+            endgame = EndgameTable.open(path);
+        }
+        return endgame;
+    }
+
+    /**
+     * Parallel chance search in positions where the race table decides
+     * some chance nodes
+     */
+    private static String checkParallelRace() {
+        RaceTable table;
+        try {
+            table = raceTable();
+        } catch (IOException e) {
+            return "cannot build the table: " + e.getMessage();
+        }
+        Random random = new Random(SEED);
+        int raced = 0;
+        for (int p = 0; p < 40; p++) {
+            GameState position = sparsePosition(random, 3);
+            if (table.covers(position)) {
+                raced++;
+            }
+            String failure = compareParallelChance(position, SticksManager.throwSticks(random), null, table);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return raced == 0 ? "no position reached the race table" : null;
+    }
+
+    /**
+     * The two-piece race table, computed on first use into a temporary file
+     */
+    private static RaceTable raceTable() throws IOException {
+        if (race == null) {
+            RaceTableGenerator generator = new RaceTableGenerator(2);
+            generator.solveExpectedTurns();
+            Path path = Files.createTempFile("senet-race", ".bin");
+            path.toFile().deleteOnExit();
+            RaceTable.write(path, 2, GameRules.getRuleTable().signature(), generator.distributions());
+            race = RaceTable.open(path);
+        }
+        return race;
+    }
+
+    /**
+     * Futility pruning must only skip moves that can't matter, in midgame
+     * positions and in sparse ones where a side is a move or two from winning
+     */
+    private static String checkFutility() {
+        Random random = new Random(SEED);
+        for (int p = 0; p < 40; p++) {
+            GameState position = p % 2 == 0 ? RandomPositions.play(random, 10 + random.nextInt(60))
+                                             : sparsePosition(random, 3);
+            if (position == null) {
+                continue;
+            }
+            if (random.nextBoolean()) {
+                position.switchPlayer();
+            }
+            int roll = SticksManager.throwSticks(random);
+            if (GameRules.getLegalMoves(position, roll).isEmpty()) {
+                continue;
+            }
+            for (int depth = 1; depth <= 4; depth++) {
+                Expectiminimax plain = new Expectiminimax(position.getCurrentPlayer(), false,
+                                                          new TranspositionTable(16));
+                Expectiminimax pruned = new Expectiminimax(position.getCurrentPlayer(), false,
+                                                           new TranspositionTable(16));
+                plain.setFutilityPruning(false);
+                pruned.setFutilityPruning(true);
+                GameResult expected = plain.search(position.clone(), roll, SearchBudget.depth(depth));
+                GameResult actual = pruned.search(position.clone(), roll, SearchBudget.depth(depth));
+                if (expected.getValue() != actual.getValue()) {
+                    return String.format("%s roll %d depth %d: without %s, with %s",
+                                         position.toNotation(), roll, depth, expected, actual);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Null if the sequential and the parallel chance search agree on the
+     * root value at depths 1-4 with these tables, else the first difference
+     */
+    private static String compareParallelChance(GameState position, int roll,
+                                                EndgameTable endgame, RaceTable race) {
+        if (GameRules.getLegalMoves(position, roll).isEmpty()) {
+            return null;
+        }
+        for (int depth = 1; depth <= 4; depth++) {
+            Expectiminimax sequential = new Expectiminimax(position.getCurrentPlayer(), false,
+                                                           new TranspositionTable(16));
+            Expectiminimax parallel = new Expectiminimax(position.getCurrentPlayer(), false,
+                                                         new TranspositionTable(16));
+            parallel.setThreads(2);
+            parallel.setParallelChance(true);
+            for (Expectiminimax engine : new Expectiminimax[] {sequential, parallel}) {
+                engine.setEndgameTable(endgame);
+                engine.setRaceTable(race);
+            }
+            GameResult expected = sequential.search(position.clone(), roll, SearchBudget.depth(depth));
+            GameResult actual = parallel.search(position.clone(), roll, SearchBudget.depth(depth));
+            if (expected.getValue() != actual.getValue()) {
+                return String.format("%s roll %d depth %d: sequential %s, parallel chance %s",
+                                     position.toNotation(), roll, depth, expected, actual);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A random position, white to move, with 1 to maxPieces pieces per side
+     * anywhere on the board
+     */
+    static GameState sparsePosition(Random random, int maxPieces) {
+        int white = randomMask(random, 1 + random.nextInt(maxPieces), 0);
+        int black = randomMask(random, 1 + random.nextInt(maxPieces), white);
+        return new GameState(BitBoard.pack(white, black, Player.WHITE));
+    }
+
+    private static int randomMask(Random random, int pieces, int occupied) {
+        int mask = 0;
+        while (Integer.bitCount(mask) < pieces) {
+            int square = 1 << random.nextInt(BitBoard.BOARD_SIZE);
+            if ((square & occupied) == 0) {
+                mask |= square;
+            }
+        }
+        return mask;
+    }
+}
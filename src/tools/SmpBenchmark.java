@@ -0,0 +1,97 @@
+package tools;
+
+import computer.GameResult;
+import computer.LazySmpSearch;
+import computer.SearchBudget;
+import game.GameRules;
+import game.SticksManager;
+import models.GameState;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Time-to-depth benchmark for the Lazy SMP engine: every position is
+ * searched to a fixed depth with 1, 2, 4, 8 and 16 threads (fresh table
+ * each time) and the speedup over one thread is reported.
+ *
+ * Positions are the initial position plus midgame positions reached by
+ * seeded random play, so runs are repeatable.
+ *
+ * Usage: java -cp bin tools.SmpBenchmark [depth] [midgame positions] [seed]
+ */
+public class SmpBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+    private static final int MIDGAME_PLIES = 40;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int midgamePositions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+
+        Random random = new Random(seed);
+        List<GameState> positions = new ArrayList<>();
+        List<Integer> rolls = new ArrayList<>();
+        positions.add(new GameState());
+        rolls.add(widestRoll(positions.get(0)));
+        while (positions.size() <= midgamePositions) {
+            GameState position = RandomPositions.play(random, MIDGAME_PLIES);
+            int roll = SticksManager.throwSticks(random);
+            if (position != null && GameRules.getLegalMoves(position, roll).size() > 1) {
+                positions.add(position);
+                rolls.add(roll);
+            }
+        }
+
+        System.out.println("Lazy SMP time to depth " + depth + " ("
+                + Runtime.getRuntime().availableProcessors() + " processors)");
+        System.out.printf("%-10s %8s %12s %10s %8s  %s%n",
+                          "position", "threads", "nodes", "ms", "speedup", "best move");
+
+        // Warm up the JIT so the one-thread runs are not penalised
+        for (int p = 0; p < positions.size(); p++) {
+            new LazySmpSearch(positions.get(p).getCurrentPlayer(), false, 1)
+                    .search(positions.get(p).clone(), rolls.get(p), SearchBudget.depth(Math.max(1, depth - 1)));
+        }
+
+        double[] totalMillis = new double[THREAD_COUNTS.length];
+        for (int p = 0; p < positions.size(); p++) {
+            String name = p == 0 ? "initial" : "midgame" + p;
+            double baseMillis = 0;
+            for (int t = 0; t < THREAD_COUNTS.length; t++) {
+                int threads = THREAD_COUNTS[t];
+                GameState position = positions.get(p);
+                LazySmpSearch engine = new LazySmpSearch(position.getCurrentPlayer(), false, threads);
+
+                long start = System.nanoTime();
+                GameResult result = engine.search(position.clone(), rolls.get(p), SearchBudget.depth(depth));
+                double millis = (System.nanoTime() - start) / 1e6;
+
+                if (t == 0) baseMillis = millis;
+                totalMillis[t] += millis;
+                System.out.printf("%-10s %8d %12d %10.1f %7.2fx  %s%n",
+                                  name, threads, engine.getStats().getNodesExplored(),
+                                  millis, baseMillis / millis, result.getBestMove());
+            }
+        }
+
+        System.out.println("\nOverall:");
+        for (int t = 0; t < THREAD_COUNTS.length; t++) {
+            System.out.printf("  %2d threads: %10.1f ms  %5.2fx%n",
+                              THREAD_COUNTS[t], totalMillis[t], totalMillis[0] / totalMillis[t]);
+        }
+    }
+
+    /**
+     * The roll with the most legal moves, so the search has a real choice
+     */
+    private static int widestRoll(GameState state) {
+        int best = 1;
+        for (int roll : SticksManager.getAllPossibleRolls()) {
+            if (GameRules.getLegalMoves(state, roll).size() > GameRules.getLegalMoves(state, best).size()) {
+                best = roll;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,526 @@
+package tools;
+
+import computer.ChanceApproximation;
+import computer.EndgameTable;
+import computer.EngineType;
+import computer.Expectiminimax;
+import computer.GameResult;
+import computer.Heuristic;
+import computer.LazySmpSearch;
+import computer.MctsSearch;
+import computer.OpeningBook;
+import computer.RaceTable;
+import computer.SearchBudget;
+import computer.SearchEngine;
+import computer.TranspositionTable;
+import game.GameRules;
+import game.SticksManager;
+import models.GameState;
+import models.Move;
+import models.Player;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless engine-vs-engine matches. Games run concurrently, one per
+ * worker thread, with no console interaction. Games are played in pairs on
+ * the same seeded dice stream with the colours swapped, so luck evens out
+ * and any run can be replayed. Reports the candidate's score and Elo
+ * difference, move time percentiles and nodes per second per side, and can
+ * stop early with a sequential probability ratio test.
+ *
+ * Usage: java -cp bin tools.Tournament [options]
+ *   --a spec, --b spec   candidate and baseline engines, a comma separated
+ *                        list of key=value settings (default depth=3):
+ *                          engine=expectiminimax|lazysmp|mcts  depth=n
+ *                          time=ms  nodes=n (playouts for mcts)  threads=n
+ *                          star2=on|off  futility=on|off  lmr=on|off  tt=bits
+ *                          parallelchance=on|off (expectiminimax, threads > 1)
+ *                        settings an engine doesn't use are rejected; mcts
+ *                        takes only engine, depth, time, nodes, threads,
+ *                        endgame, race and book, and is seeded per game
+ *                        from --seed
+ *                          weights=exited:advancement:safety:special
+ *                          epsilon=p  sample=ply:n (see ChanceApproximation)
+ *                          endgame=file (see EndgameGenerator)
+ *                          race=file (see RaceTableGenerator)
+ *                          book=file (see OpeningBookBuilder)
+ *   --games n            games to play at most (default 1000)
+ *   --threads n          games played at the same time (default: processors)
+ *   --seed n             dice seed (default 1)
+ *   --sprt elo0,elo1     stop once candidate-elo0 or candidate-elo1 is
+ *                        accepted, e.g. --sprt 0,10
+ *   --alpha a, --beta b  SPRT error rates (default 0.05 each)
+ *   --max-plies n        plies after which a game is a draw (default 20000)
+ */
+public class Tournament {
+
+    /**
+     * Settings of one side
+     */
+    static class EngineSpec {
+        // Settings of the alpha-beta search that MCTS has no use for
+        private static final Set<String> SEARCHER_SETTINGS =
+                Set.of("star2", "futility", "lmr", "tt", "weights", "epsilon", "sample", "parallelchance");
+
+        EngineType type = EngineType.EXPECTIMINIMAX;
+        SearchBudget budget = SearchBudget.depth(3);
+        int threads = 1;
+        boolean star2 = true;
+        boolean futility = true;
+        boolean reductions;
+        boolean parallelChance;
+        int tableBits = 16;
+        Heuristic heuristic = Heuristic.DEFAULT;
+        ChanceApproximation approximation = ChanceApproximation.EXACT;
+        EndgameTable endgame;
+        RaceTable race;
+        OpeningBook book;
+        private final String text;
+
+        EngineSpec(String text) {
+            this.text = text;
+            if (text.isEmpty()) {
+                return;
+            }
+            Set<String> keys = new HashSet<>();
+            for (String setting : text.split(",")) {
+                String[] kv = setting.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("Expected key=value, got " + setting);
+                }
+                keys.add(kv[0].trim());
+                String value = kv[1].trim();
+                switch (kv[0].trim()) {
+                    case "engine":
+                        type = EngineType.fromName(value);
+                        if (type == null) throw new IllegalArgumentException("Unknown engine " + value);
+                        break;
+                    case "depth": budget = budget.withMaxDepth(Integer.parseInt(value)); break;
+                    case "time": budget = budget.withTimeLimit(Long.parseLong(value)); break;
+                    case "nodes": budget = budget.withMaxNodes(Long.parseLong(value)); break;
+                    case "threads": threads = Integer.parseInt(value); break;
+                    case "star2": star2 = value.equals("on"); break;
+                    case "futility": futility = value.equals("on"); break;
+                    case "lmr": reductions = value.equals("on"); break;
+                    case "parallelchance": parallelChance = value.equals("on"); break;
+                    case "tt": tableBits = Integer.parseInt(value); break;
+                    case "weights": heuristic = Heuristic.parse(value); break;
+                    case "epsilon": approximation = approximation.withCutoff(Double.parseDouble(value)); break;
+                    case "sample": {
+                        String[] parts = value.split(":");
+                        approximation = approximation.withSampling(Integer.parseInt(parts[0]),
+                                                                   Integer.parseInt(parts[1]));
+                        break;
+                    }
+                    case "endgame":
+                        try {
+                            endgame = EndgameTable.open(Paths.get(value));
+                        } catch (IOException e) {
+                            throw new IllegalArgumentException("Cannot load endgame table: " + e.getMessage());
+                        }
+                        break;
+                    case "race":
+                        try {
+                            race = RaceTable.open(Paths.get(value));
+                        } catch (IOException e) {
+                            throw new IllegalArgumentException("Cannot load race table: " + e.getMessage());
+                        }
+                        break;
+                    case "book":
+                        try {
+                            book = OpeningBook.open(Paths.get(value));
+                        } catch (IOException e) {
+                            throw new IllegalArgumentException("Cannot load opening book: " + e.getMessage());
+                        }
+                        break;
+                    default: throw new IllegalArgumentException("Unknown setting " + kv[0]);
+                }
+            }
+            for (String key : keys) {
+                boolean applies = type == EngineType.MCTS ? !SEARCHER_SETTINGS.contains(key)
+                        : type != EngineType.LAZY_SMP || !key.equals("parallelchance");
+                if (!applies) {
+                    throw new IllegalArgumentException("Setting " + key + " does not apply to engine " + type.getName());
+                }
+            }
+        }
+
+        SearchEngine create(Player player) {
+            TranspositionTable table = new TranspositionTable(tableBits);
+            switch (type) {
+                case LAZY_SMP: {
+                    LazySmpSearch engine = new LazySmpSearch(player, false, threads, table);
+                    engine.setHeuristic(heuristic);
+                    engine.setStar2Enabled(star2);
+                    engine.setFutilityPruning(futility);
+                    engine.setLateMoveReductions(reductions);
+                    engine.setChanceApproximation(approximation);
+                    engine.setEndgameTable(endgame);
+                    engine.setRaceTable(race);
+                    return engine;
+                }
+                case MCTS: {
+                    MctsSearch engine = new MctsSearch(player, false, threads);
+                    engine.setEndgameTable(endgame);
+                    engine.setRaceTable(race);
+                    return engine;
+                }
+                default: {
+                    Expectiminimax engine = new Expectiminimax(player, false, table);
+                    engine.setThreads(threads);
+                    engine.setParallelChance(parallelChance);
+                    engine.setHeuristic(heuristic);
+                    engine.setStar2Enabled(star2);
+                    engine.setFutilityPruning(futility);
+                    engine.setLateMoveReductions(reductions);
+                    engine.setChanceApproximation(approximation);
+                    engine.setEndgameTable(endgame);
+                    engine.setRaceTable(race);
+                    return engine;
+                }
+            }
+        }
+
+        static void clearTable(SearchEngine engine) {
+            if (engine instanceof Expectiminimax) {
+                ((Expectiminimax) engine).getTable().clear();
+            } else if (engine instanceof LazySmpSearch) {
+                ((LazySmpSearch) engine).getTable().clear();
+            } else if (engine instanceof MctsSearch) {
+                ((MctsSearch) engine).clearTree();
+            }
+        }
+
+        /**
+         * Seed the engine's random numbers, if it uses any, so that a
+         * match can be replayed
+         */
+        static void seed(SearchEngine engine, long seed) {
+            if (engine instanceof MctsSearch) {
+                ((MctsSearch) engine).setSeed(seed);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return type.getName() + " (" + budget + (text.isEmpty() ? "" : "; " + text) + ")";
+        }
+    }
+
+    /**
+     * Move times (microseconds) of one side, from all workers
+     */
+    static class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void addAll(long[] batch, int count) {
+            if (size + count > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + count));
+            }
+            System.arraycopy(batch, 0, values, size, count);
+            size += count;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Per-side totals of a finished game
+     */
+    static class SideRecord {
+        long nodes;
+        long nanos;
+        long[] moveMicros = new long[256];
+        int moves;
+
+        void add(long searchNanos, long searchNodes) {
+            if (moves == moveMicros.length) {
+                moveMicros = Arrays.copyOf(moveMicros, moves * 2);
+            }
+            moveMicros[moves++] = searchNanos / 1000;
+            nanos += searchNanos;
+            nodes += searchNodes;
+        }
+    }
+
+    private final EngineSpec candidate;
+    private final EngineSpec baseline;
+    private final long seed;
+    private final int maxPlies;
+
+    // Results, candidate's point of view
+    private int wins;
+    private int losses;
+    private int draws;
+    private final long[] nodes = new long[2];
+    private final long[] nanos = new long[2];
+    private final Samples[] moveTimes = {new Samples(), new Samples()};
+
+    Tournament(EngineSpec candidate, EngineSpec baseline, long seed, int maxPlies) {
+        this.candidate = candidate;
+        this.baseline = baseline;
+        this.seed = seed;
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Play game number index. Games 2k and 2k+1 share dice stream k; the
+     * candidate is WHITE (moves first) in the even game.
+     * @return 1 if the candidate won, 0 if it lost, 0.5 for a draw
+     */
+    double playGame(int index, SearchEngine[][] engines, SideRecord[] records) {
+        Random dice = new Random(seed * 0x9E3779B97F4A7C15L + index / 2);
+        Player candidateColor = index % 2 == 0 ? Player.WHITE : Player.BLACK;
+        for (int side = 0; side < engines.length; side++) {
+            for (int color = 0; color < engines[side].length; color++) {
+                EngineSpec.clearTable(engines[side][color]);
+                EngineSpec.seed(engines[side][color],
+                                (seed * 0x9E3779B97F4A7C15L + index) * 4 + 2 * side + color);
+            }
+        }
+
+        GameState state = new GameState();
+        for (int ply = 0; ply < maxPlies && !state.isGameOver(); ply++) {
+            int roll = SticksManager.throwSticks(dice);
+            Player mover = state.getCurrentPlayer();
+            int side = mover == candidateColor ? 0 : 1;
+            List<Move> legalMoves = GameRules.getLegalMoves(state, roll);
+
+            if (!legalMoves.isEmpty()) {
+                Move move = legalMoves.get(0);
+                if (legalMoves.size() > 1) {
+                    EngineSpec spec = side == 0 ? candidate : baseline;
+                    SearchEngine engine = engines[side][mover.getId()];
+                    long start = System.nanoTime();
+                    Move bookMove = spec.book == null ? null : spec.book.lookup(state, roll);
+                    if (bookMove != null) {
+                        records[side].add(System.nanoTime() - start, 0);
+                        move = bookMove;
+                    } else {
+                        GameResult result = engine.search(state, roll, spec.budget);
+                        records[side].add(System.nanoTime() - start, engine.getStats().getNodesExplored());
+                        move = result.getBestMove();
+                    }
+                }
+                state = GameRules.applyMove(state, move);
+                if (state.isGameOver()) {
+                    break;
+                }
+            }
+            state.switchPlayer();
+        }
+
+        if (!state.isGameOver()) {
+            return 0.5;
+        }
+        return state.getWinner() == candidateColor ? 1.0 : 0.0;
+    }
+
+    synchronized void record(double score, SideRecord[] records) {
+        if (score == 1.0) wins++;
+        else if (score == 0.0) losses++;
+        else draws++;
+        for (int side = 0; side < 2; side++) {
+            nodes[side] += records[side].nodes;
+            nanos[side] += records[side].nanos;
+            moveTimes[side].addAll(records[side].moveMicros, records[side].moves);
+        }
+    }
+
+    synchronized int games() {
+        return wins + losses + draws;
+    }
+
+    /**
+     * Candidate's score as a fraction of the maximum
+     */
+    synchronized double score() {
+        int games = games();
+        return games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+    }
+
+    /**
+     * Per-game variance of the candidate's score
+     */
+    synchronized double variance() {
+        int games = games();
+        if (games == 0) return 0.25;
+        double s = score();
+        return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + losses * s * s) / games;
+    }
+
+    static double elo(double score) {
+        double s = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400.0 * Math.log10(1.0 / s - 1.0);
+    }
+
+    static double expectedScore(double elo) {
+        return 1.0 / (1.0 + Math.pow(10.0, -elo / 400.0));
+    }
+
+    /**
+     * Log-likelihood ratio of "candidate is elo1 stronger" against "elo0
+     * stronger", normal approximation of the score distribution (GSPRT)
+     */
+    synchronized double llr(double elo0, double elo1) {
+        int games = games();
+        double var = variance();
+        if (games == 0 || var <= 0) return 0.0;
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return games * (s1 - s0) * (2 * score() - s0 - s1) / (2 * var);
+    }
+
+    synchronized String summary() {
+        int games = games();
+        double s = score();
+        double margin = 1.96 * Math.sqrt(variance() / Math.max(games, 1));
+        return String.format("Games %d: +%d -%d =%d  score %.1f%%  Elo %+.1f [%+.1f, %+.1f]",
+                             games, wins, losses, draws, 100 * s, elo(s),
+                             elo(s - margin), elo(s + margin));
+    }
+
+    void printReport() {
+        System.out.println(summary());
+        String[] names = {"candidate", "baseline"};
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %12s%n",
+                          "side", "moves", "p50 ms", "p90 ms", "p99 ms", "max ms", "knodes/s");
+        for (int side = 0; side < 2; side++) {
+            long[] times = moveTimes[side].sorted();
+            double nps;
+            synchronized (this) {
+                nps = nanos[side] == 0 ? 0 : nodes[side] * 1e6 / nanos[side];
+            }
+            System.out.printf("%-10s %10d %10.3f %10.3f %10.3f %10.3f %12.0f%n",
+                              names[side], times.length,
+                              percentile(times, 50), percentile(times, 90), percentile(times, 99),
+                              percentile(times, 100), nps);
+        }
+    }
+
+    private static double percentile(long[] sortedMicros, double p) {
+        if (sortedMicros.length == 0) return 0.0;
+        int index = (int) Math.ceil(p / 100.0 * sortedMicros.length) - 1;
+        return sortedMicros[Math.max(0, Math.min(index, sortedMicros.length - 1))] / 1000.0;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String a = "";
+        String b = "";
+        int maxGames = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        double[] sprt = null;
+        double alpha = 0.05;
+        double beta = 0.05;
+        int maxPlies = 20000;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--a": a = args[++i]; break;
+                case "--b": b = args[++i]; break;
+                case "--games": maxGames = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--sprt": {
+                    String[] bounds = args[++i].split(",");
+                    sprt = new double[]{Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1])};
+                    break;
+                }
+                case "--alpha": alpha = Double.parseDouble(args[++i]); break;
+                case "--beta": beta = Double.parseDouble(args[++i]); break;
+                case "--max-plies": maxPlies = Integer.parseInt(args[++i]); break;
+                default:
+                    System.out.println("Unknown option " + args[i] + " (see the tools.Tournament class comment)");
+                    return;
+            }
+        }
+
+        EngineSpec candidate;
+        EngineSpec baseline;
+        try {
+            candidate = new EngineSpec(a);
+            baseline = new EngineSpec(b);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + " (see the tools.Tournament class comment)");
+            return;
+        }
+        Tournament tournament = new Tournament(candidate, baseline, seed, maxPlies);
+        System.out.println("Candidate: " + candidate);
+        System.out.println("Baseline:  " + baseline);
+        System.out.println("Games: " + maxGames + ", threads: " + threads + ", seed: " + seed
+                + (sprt == null ? "" : String.format(", SPRT elo0=%.1f elo1=%.1f alpha=%.2f beta=%.2f",
+                                                     sprt[0], sprt[1], alpha, beta)));
+
+        double lower = Math.log(beta / (1 - alpha));
+        double upper = Math.log((1 - beta) / alpha);
+        AtomicInteger nextGame = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        String[] verdict = new String[1];
+        int total = maxGames;
+        double[] bounds = sprt;
+        int reportEvery = Math.max(1, Math.min(100, maxGames / 10));
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int w = 0; w < threads; w++) {
+            workers.execute(() -> {
+                // engines[side][color]: each side has one engine per colour it can play
+                SearchEngine[][] engines = new SearchEngine[2][2];
+                for (Player player : Player.values()) {
+                    engines[0][player.getId()] = candidate.create(player);
+                    engines[1][player.getId()] = baseline.create(player);
+                }
+                int index;
+                while (!stop.get() && (index = nextGame.getAndIncrement()) < total) {
+                    SideRecord[] records = {new SideRecord(), new SideRecord()};
+                    double score = tournament.playGame(index, engines, records);
+                    tournament.record(score, records);
+
+                    int played = tournament.games();
+                    if (played % reportEvery == 0) {
+                        System.out.println(tournament.summary()
+                                + (bounds == null ? "" : String.format("  LLR %.2f [%.2f, %.2f]",
+                                                                       tournament.llr(bounds[0], bounds[1]), lower, upper)));
+                    }
+                    if (bounds != null) {
+                        double llr = tournament.llr(bounds[0], bounds[1]);
+                        if ((llr >= upper || llr <= lower) && stop.compareAndSet(false, true)) {
+                            verdict[0] = String.format("SPRT: %s after %d games (LLR %.2f)",
+                                                       llr >= upper ? "H1 accepted, candidate is stronger"
+                                                                    : "H0 accepted, no improvement",
+                                                       played, llr);
+                        }
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        System.out.println();
+        tournament.printReport();
+        System.out.printf("Wall time: %.1f s%n", (System.nanoTime() - start) / 1e9);
+        if (verdict[0] != null) {
+            System.out.println(verdict[0]);
+        } else if (sprt != null) {
+            System.out.println("SPRT: inconclusive after " + tournament.games() + " games");
+        }
+    }
+}